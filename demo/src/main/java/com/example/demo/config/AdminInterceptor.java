@@ -1,6 +1,6 @@
 package com.example.demo.config;
 
-import com.example.demo.model.User;
+import com.example.demo.model.SessionUser;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
@@ -14,18 +14,14 @@ public class AdminInterceptor implements HandlerInterceptor {
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
             throws Exception {
         HttpSession session = request.getSession();
-        User user = (User) session.getAttribute("user");
+        SessionUser user = (SessionUser) session.getAttribute("user");
 
         if (user == null) {
             response.sendRedirect("/login");
             return false;
         }
 
-        boolean isAdmin = user.getRoles().stream()
-                .anyMatch(role -> role.getName().equalsIgnoreCase("ADMIN")
-                        || role.getName().equalsIgnoreCase("ROLE_ADMIN"));
-
-        if (!isAdmin) {
+        if (!user.isAdmin()) {
             response.sendRedirect("/");
             return false;
         }
@@ -21,29 +21,31 @@ public class AdminController {
     private UserService userService;
 
     @Autowired
-    private com.example.demo.service.GoogleDriveService googleDriveService;
+    private com.example.demo.service.LibraryStatsService libraryStatsService;
+
+    @Autowired
+    private com.example.demo.service.OrphanReconciler orphanReconciler;
 
     @GetMapping
     public String dashboard(Model model, @RequestParam(required = false) String success, 
                            @RequestParam(required = false) String error) {
-        model.addAttribute("bookCount", bookService.findAll().size());
-        model.addAttribute("userCount", userService.findAll().size());
-        
-        // Check Google Drive status
-        boolean driveAvailable = false;
-        try {
-            driveAvailable = googleDriveService.isDriveAvailable();
-        } catch (Exception e) {
-            // If Drive service is not available, just set to false
-            // This prevents the dashboard from crashing if OAuth is not configured
-            driveAvailable = false;
-        }
-        model.addAttribute("driveAvailable", driveAvailable);
+        // Everything comes from the periodically refreshed snapshot - no queries, no Drive call
+        com.example.demo.service.LibraryStats stats = libraryStatsService.getSnapshot();
+        model.addAttribute("stats", stats);
+        model.addAttribute("bookCount", stats.getBookCount());
+        model.addAttribute("userCount", stats.getUserCount());
+        model.addAttribute("driveAvailable", stats.isDriveAvailable());
+        model.addAttribute("categoryCacheHits", categoryService.getCacheHits());
+        model.addAttribute("categoryCacheMisses", categoryService.getCacheMisses());
+        model.addAttribute("orphanReport", orphanReconciler.getLastReport());
+        model.addAttribute("orphanRunning", orphanReconciler.isRunning());
         
         // Add success/error messages
         if (success != null) {
             if ("oauth_success".equals(success)) {
                 model.addAttribute("successMessage", "✅ Google Drive đã được kết nối thành công!");
+            } else if ("reconcile_started".equals(success)) {
+                model.addAttribute("successMessage", "🧹 Đã bắt đầu quét tệp mồ côi, tải lại trang để xem báo cáo.");
             }
         }
         if (error != null) {
@@ -61,6 +63,13 @@ public class AdminController {
         return "admin/dashboard";
     }
 
+    // --- Storage Maintenance ---
+    @PostMapping("/storage/reconcile")
+    public String reconcileStorage(@RequestParam(defaultValue = "true") boolean dryRun) {
+        orphanReconciler.reconcileAsync(dryRun);
+        return "redirect:/admin?success=reconcile_started";
+    }
+
     // --- Book Management ---
     @GetMapping("/books")
     public String listBooks(Model model,
@@ -68,12 +77,12 @@ public class AdminController {
                             @RequestParam(defaultValue = "5") int size,
                             @RequestParam(required = false) String keyword) {
         org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(page, size);
-        org.springframework.data.domain.Page<Book> bookPage;
+        org.springframework.data.domain.Page<com.example.demo.service.BookCard> bookPage;
         
         if (keyword != null && !keyword.trim().isEmpty()) {
-            bookPage = bookService.search(keyword.trim(), pageable);
+            bookPage = bookService.searchCards(keyword.trim(), pageable);
         } else {
-            bookPage = bookService.findAll(pageable);
+            bookPage = bookService.findCards(pageable);
         }
         
         model.addAttribute("books", bookPage.getContent());
@@ -178,38 +187,14 @@ public class AdminController {
     // --- Category Management ---
     @Autowired
     private com.example.demo.service.CategoryService categoryService;
-    
-    @Autowired
-    private com.example.demo.repository.BookRepository bookRepository;
 
     @GetMapping("/categories")
     public String listCategories(Model model,
                                  @RequestParam(defaultValue = "0") int page,
                                  @RequestParam(defaultValue = "5") int size,
                                  @RequestParam(required = false) String keyword) {
-        // First, handle empty categories deletion (before pagination) - only if no search keyword
-        if (keyword == null || keyword.trim().isEmpty()) {
-            java.util.List<com.example.demo.model.Category> allCategories = categoryService.findAll();
-            java.util.List<Long> categoryIdsToDelete = new java.util.ArrayList<>();
-            
-            for (com.example.demo.model.Category category : allCategories) {
-                java.util.List<com.example.demo.model.Book> books = bookRepository.findByCategoriesId(category.getId());
-                if (books.isEmpty()) {
-                    categoryIdsToDelete.add(category.getId());
-                }
-            }
-            
-            // Delete empty categories
-            for (Long categoryId : categoryIdsToDelete) {
-                try {
-                    categoryService.deleteById(categoryId);
-                } catch (Exception e) {
-                    System.err.println("Error deleting category " + categoryId + ": " + e.getMessage());
-                }
-            }
-        }
-        
-        // Now get paginated categories (with search if keyword provided)
+        // Get paginated categories (with search if keyword provided)
+        // Empty categories are pruned by CategoryService's scheduled job, not here
         org.springframework.data.domain.Pageable pageable = org.springframework.data.domain.PageRequest.of(page, size);
         org.springframework.data.domain.Page<com.example.demo.model.Category> categoryPage;
         
@@ -221,12 +206,9 @@ public class AdminController {
         
         java.util.List<com.example.demo.model.Category> categories = categoryPage.getContent();
         
-        // Count books for each category in current page
-        java.util.Map<Long, Long> bookCountMap = new java.util.HashMap<>();
-        for (com.example.demo.model.Category category : categories) {
-            java.util.List<com.example.demo.model.Book> books = bookRepository.findByCategoriesId(category.getId());
-            bookCountMap.put(category.getId(), (long) books.size());
-        }
+        // Count books for all categories of the current page in one grouped query
+        java.util.Map<Long, Long> bookCountMap = categoryService.countBooks(
+                categories.stream().map(com.example.demo.model.Category::getId).toList());
         
         model.addAttribute("categories", categories);
         model.addAttribute("bookCountMap", bookCountMap);
@@ -0,0 +1,82 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.BookApiService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only JSON API over the catalog for mobile clients and sync jobs
+ */
+@Controller
+@RequestMapping("/api/books")
+public class BookApiController {
+
+    @Autowired
+    private BookApiService bookApiService;
+
+    /**
+     * One page of books. Follow nextCursor (with the same filters and sort) for the next page.
+     * @param sort relevance (default with a keyword), newest (default otherwise), views or rating
+     * @param fields Comma-separated subset of BookApiService.FIELDS, all by default
+     */
+    @GetMapping
+    @ResponseBody
+    public Map<String, Object> list(@RequestParam(required = false) String keyword,
+            @RequestParam(required = false) List<Long> categoryIds,
+            @RequestParam(defaultValue = "or") String mode,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int size,
+            @RequestParam(required = false) String fields) {
+        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+        return bookApiService.findPage(keyword, categoryIds, "and".equalsIgnoreCase(mode),
+                BookApiService.Sort.parse(sort, hasKeyword), cursor, size, BookApiService.parseFields(fields));
+    }
+
+    /**
+     * Every book as one JSON array, written while it is read from the database.
+     * Only a few exports run at once (each holds a database connection): 429 otherwise.
+     * The body is streamed as an async request, limited by spring.mvc.async.request-timeout,
+     * which the properties tie to library.api.export-timeout-seconds.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) String fields) {
+        Set<String> selected = BookApiService.parseFields(fields);
+        if (!bookApiService.tryStartExport()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .build();
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                bookApiService.exportAll(out, selected);
+            } finally {
+                bookApiService.finishExport();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.json\"")
+                .body(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
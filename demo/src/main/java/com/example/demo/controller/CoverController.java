@@ -0,0 +1,91 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.CoverImageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Book cover thumbnails served from the local cache instead of hotlinking the remote originals
+ */
+@Controller
+public class CoverController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverController.class);
+
+    // Used when the URL is not versioned or the cover could not be cached
+    private static final CacheControl SHORT_CACHE = CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic();
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    @Autowired
+    private CoverImageService coverImageService;
+
+    /**
+     * @param bookId Book id
+     * @param size Thumbnail width, one of CoverImageService.WIDTHS
+     * @param version Version of the cover (hash of Book.imageUrl) as written by the templates
+     */
+    @GetMapping("/covers/{bookId}/{size}")
+    public ResponseEntity<byte[]> cover(@PathVariable Long bookId, @PathVariable int size,
+            @RequestParam(name = "v", required = false) String version) {
+        if (!CoverImageService.WIDTHS.contains(size)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // A versioned URL always maps to the same bytes: cache hits need no database lookup
+        Path cached = coverImageService.findCached(bookId, size, version);
+        if (cached != null) {
+            try {
+                return image(Files.readAllBytes(cached), IMMUTABLE);
+            } catch (IOException e) {
+                // Evicted meanwhile, rebuilt below
+            }
+        }
+
+        String imageUrl = coverImageService.getImageUrl(bookId);
+        if (imageUrl == null || imageUrl.isBlank()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!CoverImageService.isRemote(imageUrl)) {
+            return redirect(imageUrl.trim());
+        }
+
+        try {
+            Path thumbnail = coverImageService.getThumbnail(bookId, imageUrl.trim(), size);
+            boolean current = CoverImageService.versionOf(imageUrl).equals(version);
+            return image(Files.readAllBytes(thumbnail), current ? IMMUTABLE : SHORT_CACHE);
+        } catch (IOException e) {
+            // Unreachable host or an image format ImageIO cannot read: let the browser load the original
+            logger.warn("⚠️ Cover for book {} not cached ({}), redirecting to the original", bookId, e.getMessage());
+            return redirect(imageUrl.trim());
+        }
+    }
+
+    private static ResponseEntity<byte[]> image(byte[] bytes, CacheControl cacheControl) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(cacheControl)
+                .body(bytes);
+    }
+
+    private static ResponseEntity<byte[]> redirect(String location) {
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, location)
+                .cacheControl(SHORT_CACHE)
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.model.SessionUser;
 import com.example.demo.model.User;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,41 +21,99 @@ public class HomeController {
     private com.example.demo.service.CategoryService categoryService;
 
     @Autowired
-    private com.example.demo.repository.BookRepository bookRepository;
+    private com.example.demo.service.UserService userService;
 
     @Autowired
-    private com.example.demo.service.UserService userService;
+    private com.example.demo.service.ViewCountService viewCountService;
+
+    @Autowired
+    private com.example.demo.service.BookSuggestionIndex bookSuggestionIndex;
+
+    @Autowired
+    private com.example.demo.service.SimilarBooksIndex similarBooksIndex;
+
+    @Autowired
+    private com.example.demo.service.TrendingService trendingService;
+
+    @Autowired
+    private com.example.demo.service.ContentVersionService contentVersionService;
+
+    @Autowired
+    private com.example.demo.service.RenderedFragmentCache renderedFragmentCache;
 
     @GetMapping("/")
     public String index(Model model) {
         // Need categories for the header dropdown
         model.addAttribute("categories", categoryService.findAll());
+        model.addAttribute("trendingBooks", bookService.findCardsByIdInOrder(trendingService.getTrendingBookIds(8)));
         return "index";
     }
 
     @GetMapping("/catalog")
     public String catalog(@RequestParam(required = false) String keyword,
             @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) java.util.List<Long> categoryIds,
+            @RequestParam(defaultValue = "or") String mode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int size,
+            @org.springframework.web.bind.annotation.SessionAttribute(name = "user", required = false) SessionUser currentUser,
+            org.springframework.web.context.request.WebRequest webRequest,
+            jakarta.servlet.http.HttpServletResponse response,
             Model model) {
 
-        java.util.List<com.example.demo.model.Book> books;
+        // The URL carries the filters; the validator covers everything else the page shows
+        String etag = pageEtag(currentUser, response, "c", contentVersionService.getCatalogVersion(),
+                categoryService.getVersion(), trendingService.getVersion());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        if (keyword != null && !keyword.isEmpty()) {
-            books = bookRepository.findByTitleContainingIgnoreCase(keyword);
-        } else if (categoryId != null) {
-            books = bookRepository.findByCategoriesId(categoryId);
-        } else {
-            books = bookService.findAll();
+        // Single categoryId links (header, home page) are the one-element case of categoryIds
+        java.util.Set<Long> selectedCategoryIds = new java.util.LinkedHashSet<>();
+        if (categoryIds != null) {
+            categoryIds.stream().filter(java.util.Objects::nonNull).forEach(selectedCategoryIds::add);
+        }
+        if (categoryId != null) {
+            selectedCategoryIds.add(categoryId);
         }
+        boolean matchAll = "and".equalsIgnoreCase(mode);
+
+        // One search per request, shared by the page and the facet counts
+        java.util.List<Long> rankedIds = bookService.findCatalogRanking(keyword);
+        com.example.demo.service.BookService.CatalogPage page =
+                bookService.findCatalogPage(keyword, rankedIds, selectedCategoryIds, matchAll, cursor, size);
+        org.springframework.data.domain.Slice<com.example.demo.service.BookCard> bookSlice = page.getSlice();
+        java.util.List<com.example.demo.service.BookCard> books = bookSlice.getContent();
+        String nextCursor = page.getNextCursor();
 
         model.addAttribute("books", books);
+        // Cards and header menu come pre-rendered; only the per-request parts are evaluated by the template
+        model.addAttribute("bookCardsHtml", renderedFragmentCache.renderCards(books));
+        model.addAttribute("categoryMenuHtml", renderedFragmentCache.renderCategoryMenu());
         model.addAttribute("categories", categoryService.findAll());
-        model.addAttribute("currentCategoryId", categoryId);
+        model.addAttribute("facetCounts", bookService.countCatalogFacets(keyword, rankedIds, selectedCategoryIds, matchAll));
+        model.addAttribute("trendingBooks", bookService.findCardsByIdInOrder(trendingService.getTrendingBookIds(5)));
+        model.addAttribute("currentCategoryIds", selectedCategoryIds);
+        model.addAttribute("currentMode", matchAll ? "and" : "or");
         model.addAttribute("currentKeyword", keyword);
+        model.addAttribute("currentCursor", cursor);
+        model.addAttribute("nextCursor", nextCursor);
+        model.addAttribute("pageSize", bookSlice.getSize());
 
         return "catalog";
     }
 
+    /**
+     * Typeahead completions for the catalog search box, served from memory
+     */
+    @GetMapping("/api/suggest")
+    @org.springframework.web.bind.annotation.ResponseBody
+    public java.util.List<com.example.demo.service.BookSuggestionIndex.Suggestion> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return bookSuggestionIndex.suggest(q, limit);
+    }
+
     @GetMapping("/login")
     public String login() {
         return "login";
@@ -64,22 +123,17 @@ public class HomeController {
     public String login(@RequestParam String email, @RequestParam String password, Model model, HttpSession session) {
         // Simple manual authentication for demo purposes
         // In a real app with Spring Security, this would be handled automatically
-        var users = userService.findAll(); // In real app use findByEmail
-
-        for (User user : users) {
-            // Basic check - in real app password should be hashed
-            if (user.getEmail() != null && user.getEmail().equals(email) && user.getPassword().equals(password)) {
-                session.setAttribute("user", user);
-                // Check if user has ADMIN role
-                boolean isAdmin = user.getRoles().stream()
-                        .anyMatch(role -> role.getName().equalsIgnoreCase("ADMIN")
-                                || role.getName().equalsIgnoreCase("ROLE_ADMIN"));
-
-                if (isAdmin) {
-                    return "redirect:/admin";
-                } else {
-                    return "redirect:/";
-                }
+        User user = userService.authenticate(email, password);
+
+        if (user != null) {
+            // Keep only a lightweight principal in the session, not the entity
+            SessionUser sessionUser = SessionUser.from(user);
+            session.setAttribute("user", sessionUser);
+
+            if (sessionUser.isAdmin()) {
+                return "redirect:/admin";
+            } else {
+                return "redirect:/";
             }
         }
 
@@ -94,19 +148,34 @@ public class HomeController {
     }
 
     @GetMapping("/books/{id}")
-    public String bookDetails(@PathVariable Long id, Model model, HttpSession session) {
+    public String bookDetails(@PathVariable Long id, Model model,
+            @org.springframework.web.bind.annotation.SessionAttribute(name = "user", required = false) SessionUser currentUser,
+            org.springframework.web.context.request.WebRequest webRequest,
+            jakarta.servlet.http.HttpServletResponse response) {
+        String etag = pageEtag(currentUser, response, "b" + id, contentVersionService.getBookVersion(id),
+                categoryService.getVersion(), similarBooksIndex.getVersion());
+        if (webRequest.checkNotModified(etag)) {
+            // Still a view, only the rendering is skipped
+            viewCountService.recordView(id);
+            trendingService.recordView(id);
+            return null;
+        }
+
         com.example.demo.model.Book book = bookService.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid book Id:" + id));
         
-        // Increment view count
-        Long currentViewCount = book.getViewCount() != null ? book.getViewCount() : 0L;
-        book.setViewCount(currentViewCount + 1);
-        bookService.save(book);
-        
+        // Count the view in memory; ViewCountService flushes it to the database in batches
+        viewCountService.recordView(id);
+        trendingService.recordView(id);
+
         model.addAttribute("book", book);
+        model.addAttribute("coverUrl", com.example.demo.service.CoverImageService.coverUrl(
+                id, book.getImageUrl(), com.example.demo.service.CoverImageService.DETAIL_WIDTH));
+        model.addAttribute("viewCount", book.getViewCount() + viewCountService.getPendingViews(id));
         model.addAttribute("categories", categoryService.findAll()); // For header
+        // Neighbours are precomputed by SimilarBooksIndex, only the cards are loaded here
+        model.addAttribute("similarBooks", bookService.findCardsByIdInOrder(similarBooksIndex.neighboursOf(id, 6)));
 
-        User currentUser = (User) session.getAttribute("user");
         if (currentUser != null) {
             com.example.demo.model.Review userReview = reviewService.findByBookAndUser(id, currentUser.getId());
             model.addAttribute("userReview", userReview);
@@ -115,32 +184,73 @@ public class HomeController {
         return "book-details";
     }
 
+    /**
+     * Weak ETag for a public page: the content versions it depends on plus the viewer
+     * (pages differ per user: header, own review). Pages of logged-in users are private;
+     * anonymous pages may be stored by shared caches (nginx) but must be revalidated.
+     * View counters on the page may lag until one of the versions changes.
+     */
+    private String pageEtag(SessionUser currentUser, jakarta.servlet.http.HttpServletResponse response,
+            Object... versions) {
+        response.setHeader(org.springframework.http.HttpHeaders.CACHE_CONTROL,
+                currentUser != null ? "private, no-cache" : "public, no-cache");
+        StringBuilder etag = new StringBuilder("W/\"").append(contentVersionService.getEpoch());
+        for (Object version : versions) {
+            etag.append('-').append(version);
+        }
+        etag.append('-').append(currentUser != null ? "u" + currentUser.getId() : "anon");
+        return etag.append('"').toString();
+    }
+
     @Autowired
     private com.example.demo.service.FileStorageService fileStorageService;
 
     @Autowired
-    private com.example.demo.service.GoogleDriveService googleDriveService;
+    private com.example.demo.service.FileDownloadService fileDownloadService;
+
+    @Autowired
+    private com.example.demo.service.DriveLinkCache driveLinkCache;
+
+    @Autowired
+    private com.example.demo.service.DriveFileCache driveFileCache;
 
     @Autowired
     private com.example.demo.repository.BookFileRepository bookFileRepository;
 
     @GetMapping("/books/download/{fileId}")
     public org.springframework.http.ResponseEntity<?> downloadFile(
-            @org.springframework.web.bind.annotation.PathVariable Long fileId) {
+            @org.springframework.web.bind.annotation.PathVariable Long fileId,
+            jakarta.servlet.http.HttpServletRequest request,
+            jakarta.servlet.http.HttpServletResponse response) throws java.io.IOException {
         com.example.demo.model.BookFile bookFile = bookFileRepository.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found with id " + fileId));
 
         String filePath = bookFile.getFilePath();
+        // PDF viewers fetch a file in many ranges; only the first request counts as a download
+        if (com.example.demo.service.FileDownloadService.isInitialRequest(request)) {
+            trendingService.recordDownload(bookFile.getBook().getId());
+        }
         
-        // Check if filePath is a Google Drive file ID (typically doesn't contain path separators)
-        // Drive file IDs are usually alphanumeric strings of length 25-50
-        boolean isDriveFile = filePath != null && !filePath.contains("/") && !filePath.contains("\\") 
-                && filePath.length() > 20 && filePath.length() < 100;
-        
-        if (isDriveFile) {
+        // Proxy mode: hot Drive files are served from the local read-through cache
+        if (driveFileCache.isProxied(bookFile)) {
+            java.nio.file.Path cached = null;
+            try {
+                cached = driveFileCache.getLocalCopy(bookFile);
+            } catch (java.io.IOException e) {
+                org.slf4j.LoggerFactory.getLogger(HomeController.class)
+                        .warn("⚠️ Drive proxy failed for file {}, redirecting: {}", fileId, e.getMessage());
+            }
+            if (cached != null) {
+                fileDownloadService.serve(cached, bookFile.getFileType(), bookFile.getFileName(), request, response);
+                return null;
+            }
+        }
+
+        // Check if filePath is a Google Drive file ID rather than a local file name
+        if (bookFile.isDriveFile()) {
             try {
-                // Get download URL from Google Drive
-                String downloadUrl = googleDriveService.getDownloadUrl(filePath);
+                // Link saved at upload time (or cached), no Drive API call in the common case
+                String downloadUrl = driveLinkCache.getDownloadUrl(bookFile);
                 
                 // Redirect to Google Drive download URL
                 return org.springframework.http.ResponseEntity.status(org.springframework.http.HttpStatus.FOUND)
@@ -150,13 +260,10 @@ public class HomeController {
                 throw new RuntimeException("Failed to get download URL from Google Drive: " + e.getMessage(), e);
             }
         } else {
-            // Use local file storage (backward compatibility)
-            org.springframework.core.io.Resource resource = fileStorageService.loadFileAsResource(filePath);
-            return org.springframework.http.ResponseEntity.ok()
-                    .contentType(org.springframework.http.MediaType.parseMediaType(bookFile.getFileType()))
-                    .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + bookFile.getFileName() + "\"")
-                    .body(resource);
+            // Use local file storage (backward compatibility), with Range / conditional request support
+            java.nio.file.Path file = fileStorageService.resolveExistingFile(filePath);
+            fileDownloadService.serve(file, bookFile.getFileType(), bookFile.getFileName(), request, response);
+            return null;
         }
     }
 
@@ -216,7 +323,7 @@ public class HomeController {
             @RequestParam String content,
             HttpSession session) {
 
-        User currentUser = (User) session.getAttribute("user");
+        SessionUser currentUser = (SessionUser) session.getAttribute("user");
         if (currentUser == null) {
             return "redirect:/login";
         }
@@ -230,7 +337,7 @@ public class HomeController {
         if (review == null) {
             review = new com.example.demo.model.Review();
             review.setBook(book);
-            review.setUser(currentUser);
+            review.setUser(userService.getReference(currentUser.getId()));
         } else {
             review.setUpdatedAt(java.time.LocalDateTime.now());
         }
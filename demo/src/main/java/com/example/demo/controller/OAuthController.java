@@ -17,6 +17,9 @@ public class OAuthController {
     @Autowired
     private GoogleDriveService googleDriveService;
 
+    @Autowired
+    private com.example.demo.service.LibraryStatsService libraryStatsService;
+
     @GetMapping("/oauth2/authorize")
     public String authorize() {
         try {
@@ -49,6 +52,8 @@ public class OAuthController {
             logger.info("Received authorization code, exchanging for tokens...");
             googleDriveService.exchangeCodeForTokens(code);
             logger.info("✅ OAuth authorization completed successfully!");
+            // Refresh the dashboard snapshot so it shows Drive as connected right away
+            libraryStatsService.refresh();
             return "redirect:/admin?success=oauth_success";
         } catch (Exception e) {
             logger.error("Error exchanging code for tokens: {}", e.getMessage(), e);
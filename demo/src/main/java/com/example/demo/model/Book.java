@@ -16,6 +16,9 @@ public class Book {
 
     private String author;
 
+    // Loaded on first access only (bytecode enhancement, see hibernate-maven-plugin in pom.xml);
+    // list pages use BookCardView and never touch it
+    @Basic(fetch = FetchType.LAZY)
     @Column(columnDefinition = "NVARCHAR(MAX)")
     private String description;
 
@@ -25,9 +28,36 @@ public class Book {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
-    @Column(name = "view_count")
+    // Incremented in batches by ViewCountService; never written back from the entity
+    @Column(name = "view_count", updatable = false)
     private Long viewCount = 0L;
 
+    // Rating aggregates, maintained by ReviewService with atomic UPDATE statements.
+    // updatable = false so that saving a Book entity (e.g. from the admin form) never overwrites them.
+    @Column(name = "rating_average", updatable = false)
+    private Double ratingAverage = 0.0;
+
+    @Column(name = "rating_count", updatable = false)
+    private Long ratingCount = 0L;
+
+    @Column(name = "rating_sum", updatable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_1_count", updatable = false)
+    private Long rating1Count = 0L;
+
+    @Column(name = "rating_2_count", updatable = false)
+    private Long rating2Count = 0L;
+
+    @Column(name = "rating_3_count", updatable = false)
+    private Long rating3Count = 0L;
+
+    @Column(name = "rating_4_count", updatable = false)
+    private Long rating4Count = 0L;
+
+    @Column(name = "rating_5_count", updatable = false)
+    private Long rating5Count = 0L;
+
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "book_category", joinColumns = @JoinColumn(name = "book_id"), inverseJoinColumns = @JoinColumn(name = "category_id"))
     private java.util.Set<Category> categories = new java.util.HashSet<>();
@@ -94,6 +124,31 @@ public class Book {
         this.viewCount = viewCount;
     }
 
+    public Double getRatingAverage() {
+        return ratingAverage != null ? ratingAverage : 0.0;
+    }
+
+    public Long getRatingCount() {
+        return ratingCount != null ? ratingCount : 0L;
+    }
+
+    public Long getRatingSum() {
+        return ratingSum != null ? ratingSum : 0L;
+    }
+
+    /**
+     * Number of reviews per star value
+     * @return Array of 5 counts, index 0 = 1 star ... index 4 = 5 stars
+     */
+    public long[] getRatingHistogram() {
+        return new long[] {
+                rating1Count != null ? rating1Count : 0L,
+                rating2Count != null ? rating2Count : 0L,
+                rating3Count != null ? rating3Count : 0L,
+                rating4Count != null ? rating4Count : 0L,
+                rating5Count != null ? rating5Count : 0L };
+    }
+
     public java.util.Set<Category> getCategories() {
         return categories;
     }
@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "book_file")
+@Table(name = "book_file", indexes = @Index(name = "idx_book_file_content_digest", columnList = "content_digest"))
 public class BookFile {
 
     @Id
@@ -26,15 +26,42 @@ public class BookFile {
     @Column(name = "uploaded_at")
     private LocalDateTime uploadedAt;
 
+    // Direct download link of a Drive file (webContentLink), saved at upload time so a download
+    // is a plain redirect; null for local files and for Drive files uploaded before it existed
+    @Column(name = "drive_download_url", length = 1000)
+    private String driveDownloadUrl;
+
+    // When driveDownloadUrl was obtained; DriveLinkCache refreshes links older than its TTL
+    @Column(name = "drive_link_fetched_at")
+    private LocalDateTime driveLinkFetchedAt;
+
+    // SHA-256 of the content (see StoredBlob); null for files stored before content addressing
+    @Column(name = "content_digest", length = 64)
+    private String contentDigest;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
+    // Google Drive file ids are 20-100 characters of [A-Za-z0-9_-]; local names contain a '.' or a path separator
+    private static final java.util.regex.Pattern DRIVE_FILE_ID = java.util.regex.Pattern.compile("[A-Za-z0-9_-]{20,100}");
+
     @PrePersist
     protected void onCreate() {
         uploadedAt = LocalDateTime.now();
     }
 
+    /**
+     * Check whether a stored file path is a Google Drive file id rather than a file in uploads/
+     */
+    public static boolean isDriveFileId(String filePath) {
+        return filePath != null && DRIVE_FILE_ID.matcher(filePath).matches();
+    }
+
+    public boolean isDriveFile() {
+        return isDriveFileId(filePath);
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -84,6 +111,34 @@ public class BookFile {
         this.uploadedAt = uploadedAt;
     }
 
+    public String getDriveDownloadUrl() {
+        return driveDownloadUrl;
+    }
+
+    /**
+     * Set the Drive link and mark it as fetched now
+     */
+    public void setDriveDownloadUrl(String driveDownloadUrl) {
+        this.driveDownloadUrl = driveDownloadUrl;
+        this.driveLinkFetchedAt = driveDownloadUrl != null ? LocalDateTime.now() : null;
+    }
+
+    public LocalDateTime getDriveLinkFetchedAt() {
+        return driveLinkFetchedAt;
+    }
+
+    public void setDriveLinkFetchedAt(LocalDateTime driveLinkFetchedAt) {
+        this.driveLinkFetchedAt = driveLinkFetchedAt;
+    }
+
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    public void setContentDigest(String contentDigest) {
+        this.contentDigest = contentDigest;
+    }
+
     public Book getBook() {
         return book;
     }
@@ -33,11 +33,22 @@ public class Review {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Rating as last read from / written to the database, used to adjust the book's rating aggregates
+    @Transient
+    private Integer persistedRating;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
 
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    protected void rememberPersistedRating() {
+        persistedRating = rating;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -55,6 +66,10 @@ public class Review {
         this.rating = rating;
     }
 
+    public Integer getPersistedRating() {
+        return persistedRating;
+    }
+
     public String getComment() {
         return comment;
     }
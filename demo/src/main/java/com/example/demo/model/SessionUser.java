@@ -0,0 +1,52 @@
+package com.example.demo.model;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lightweight principal stored in the HTTP session after login,
+ * instead of the whole User entity with its roles collection
+ */
+public class SessionUser implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String fullName;
+    private final String email;
+    private final Set<String> roles;
+
+    public SessionUser(Long id, String fullName, String email, Set<String> roles) {
+        this.id = id;
+        this.fullName = fullName;
+        this.email = email;
+        this.roles = Set.copyOf(roles);
+    }
+
+    public static SessionUser from(User user) {
+        Set<String> roleNames = user.getRoles() == null ? Set.of()
+                : user.getRoles().stream().map(Role::getName).collect(Collectors.toSet());
+        return new SessionUser(user.getId(), user.getFullName(), user.getEmail(), roleNames);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public boolean isAdmin() {
+        return roles.stream().anyMatch(r -> "ROLE_ADMIN".equalsIgnoreCase(r) || "ADMIN".equalsIgnoreCase(r));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One stored file content, identified by its SHA-256 digest. Book files with the same bytes
+ * share the blob: one copy in uploads/ and one upload to Google Drive.
+ */
+@Entity
+@Table(name = "stored_blob")
+public class StoredBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Lower-case hex SHA-256 of the content
+    @Column(name = "digest", nullable = false, unique = true, length = 64)
+    private String digest;
+
+    @Column(name = "size")
+    private Long size;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    // Name of the copy in uploads/, null once the local copy was dropped
+    @Column(name = "local_name", length = 500)
+    private String localName;
+
+    @Column(name = "drive_file_id", length = 100)
+    private String driveFileId;
+
+    @Column(name = "drive_download_url", length = 1000)
+    private String driveDownloadUrl;
+
+    // Number of BookFile rows with this content_digest. Only changed by update queries:
+    // updatable = false so that saving a StoredBlob never writes back a stale count.
+    @Column(name = "ref_count", nullable = false, updatable = false)
+    private int refCount;
+
+    // Last time an upload stored this content; its local copy may still be needed until then + grace
+    @Column(name = "registered_at")
+    private LocalDateTime registeredAt;
+
+    // The content is kept only on Drive: the nightly repair deletes the local copy after the grace
+    @Column(name = "release_local_copy")
+    private Boolean releaseLocalCopy;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        registeredAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getLocalName() {
+        return localName;
+    }
+
+    public void setLocalName(String localName) {
+        this.localName = localName;
+    }
+
+    public String getDriveFileId() {
+        return driveFileId;
+    }
+
+    public void setDriveFileId(String driveFileId) {
+        this.driveFileId = driveFileId;
+    }
+
+    public String getDriveDownloadUrl() {
+        return driveDownloadUrl;
+    }
+
+    public void setDriveDownloadUrl(String driveDownloadUrl) {
+        this.driveDownloadUrl = driveDownloadUrl;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getRegisteredAt() {
+        return registeredAt;
+    }
+
+    public void setRegisteredAt(LocalDateTime registeredAt) {
+        this.registeredAt = registeredAt;
+    }
+
+    public Boolean getReleaseLocalCopy() {
+        return releaseLocalCopy;
+    }
+
+    public void setReleaseLocalCopy(Boolean releaseLocalCopy) {
+        this.releaseLocalCopy = releaseLocalCopy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.repository;
+
+/**
+ * Projection of the Book columns rendered by a book card (catalog, home page, admin list)
+ */
+public interface BookCardView {
+
+    Long getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    String getImageUrl();
+
+    Long getViewCount();
+
+    Double getRatingAverage();
+
+    Long getRatingCount();
+}
@@ -0,0 +1,11 @@
+package com.example.demo.repository;
+
+/**
+ * One row of the book_category join table (categoryId is null for books without a category)
+ */
+public interface BookCategoryLink {
+
+    Long getBookId();
+
+    Long getCategoryId();
+}
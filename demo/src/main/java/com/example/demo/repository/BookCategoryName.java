@@ -0,0 +1,11 @@
+package com.example.demo.repository;
+
+/**
+ * Projection of (book, category name) pairs used to label book cards
+ */
+public interface BookCategoryName {
+
+    Long getBookId();
+
+    String getName();
+}
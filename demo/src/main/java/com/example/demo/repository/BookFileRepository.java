@@ -2,8 +2,38 @@ package com.example.demo.repository;
 
 import com.example.demo.model.BookFile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface BookFileRepository extends JpaRepository<BookFile, Long> {
+
+    // Forward-only stream of storage locations; must run inside a transaction
+    @QueryHints(@jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select f.id as id, f.filePath as filePath, f.fileSize as fileSize from BookFile f")
+    java.util.stream.Stream<BookFileStorageView> streamStorageViews();
+
+    // Backfill / refresh of the Drive link (see DriveLinkCache)
+    @Transactional
+    @Modifying
+    @Query("update BookFile f set f.driveDownloadUrl = :url, f.driveLinkFetchedAt = :fetchedAt where f.id = :id")
+    int updateDriveDownloadUrl(@Param("id") Long id, @Param("url") String url,
+            @Param("fetchedAt") java.time.LocalDateTime fetchedAt);
+
+    // Content digests of a book's files, read before the book is deleted to release its blobs
+    @Query("select f.contentDigest from BookFile f where f.book.id = :bookId and f.contentDigest is not null")
+    java.util.List<String> findContentDigestsByBookId(@Param("bookId") Long bookId);
+
+    boolean existsByFilePath(String filePath);
+
+    // Moves every row of a local file to its content-addressed name (see UploadMigrationService)
+    @Transactional
+    @Modifying
+    @Query("update BookFile f set f.filePath = :newPath, f.contentDigest = :digest where f.filePath = :oldPath")
+    int updateStorage(@Param("oldPath") String oldPath, @Param("newPath") String newPath,
+            @Param("digest") String digest);
 }
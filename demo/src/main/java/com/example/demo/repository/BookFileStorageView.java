@@ -0,0 +1,13 @@
+package com.example.demo.repository;
+
+/**
+ * Projection of where a book file is stored and how large it is
+ */
+public interface BookFileStorageView {
+
+    Long getId();
+
+    String getFilePath();
+
+    Long getFileSize();
+}
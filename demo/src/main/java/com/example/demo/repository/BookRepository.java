@@ -3,19 +3,24 @@ package com.example.demo.repository;
 import com.example.demo.model.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
-    @EntityGraph(attributePaths = {"categories", "reviews"})
+    @EntityGraph(attributePaths = {"categories"})
     java.util.List<Book> findAll();
     
-    @EntityGraph(attributePaths = {"categories", "reviews"})
+    @EntityGraph(attributePaths = {"categories"})
     java.util.List<Book> findByTitleContainingIgnoreCase(String keyword);
 
-    @EntityGraph(attributePaths = {"categories", "reviews"})
+    @EntityGraph(attributePaths = {"categories"})
     java.util.List<Book> findByCategoriesId(Long categoryId);
     
     @EntityGraph(attributePaths = {"categories"})
@@ -24,4 +29,130 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @EntityGraph(attributePaths = {"categories"})
     Page<Book> findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(
             String title, String author, Pageable pageable);
+
+    // --- Card projections: only the columns a book card renders (no description, no collections) ---
+
+    String CARD_SELECT = "select b.id as id, b.title as title, b.author as author, b.imageUrl as imageUrl, "
+            + "b.viewCount as viewCount, b.ratingAverage as ratingAverage, b.ratingCount as ratingCount from Book b ";
+
+    @Query(CARD_SELECT + "where b.id in :ids")
+    java.util.List<BookCardView> findCardsByIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    // Keyset (cursor) pagination for the public catalog: newest first, "before" is the id
+    // of the last book already shown
+    @Query(CARD_SELECT + "where b.id < :before order by b.id desc")
+    Slice<BookCardView> findCardsBefore(@Param("before") Long before, Pageable pageable);
+
+    @Query(CARD_SELECT + "where lower(b.title) like lower(concat('%', :keyword, '%')) and b.id < :before order by b.id desc")
+    Slice<BookCardView> findCardsByTitleBefore(@Param("keyword") String keyword, @Param("before") Long before,
+            Pageable pageable);
+
+    @Query(CARD_SELECT + "join b.categories c where c.id = :categoryId and b.id < :before order by b.id desc")
+    Slice<BookCardView> findCardsByCategoryBefore(@Param("categoryId") Long categoryId, @Param("before") Long before,
+            Pageable pageable);
+
+    @Query(value = CARD_SELECT, countQuery = "select count(b) from Book b")
+    Page<BookCardView> findCards(Pageable pageable);
+
+    @Query(value = CARD_SELECT + "where lower(b.title) like lower(concat('%', :keyword, '%')) "
+            + "or lower(b.author) like lower(concat('%', :keyword, '%'))",
+            countQuery = "select count(b) from Book b where lower(b.title) like lower(concat('%', :keyword, '%')) "
+                    + "or lower(b.author) like lower(concat('%', :keyword, '%'))")
+    Page<BookCardView> searchCards(@Param("keyword") String keyword, Pageable pageable);
+
+    // --- Sorted keyset pages for the JSON API. The category filter is skipped when
+    // requiredCategories = 0, otherwise a book must be in at least that many of categoryIds
+    // (1 = any of them, categoryIds.size() = all of them). NULL counters sort as 0. ---
+
+    String CATEGORY_FILTER = "(:requiredCategories = 0L or b.id in (select bc.id from Book bc join bc.categories c "
+            + "where c.id in :categoryIds group by bc.id having count(c) >= :requiredCategories)) ";
+
+    @Query(CARD_SELECT + "where " + CATEGORY_FILTER
+            + "and (coalesce(b.viewCount, 0) < :lastViews "
+            + "or (coalesce(b.viewCount, 0) = :lastViews and b.id < :lastId)) "
+            + "order by coalesce(b.viewCount, 0) desc, b.id desc")
+    Slice<BookCardView> findCardsByViewsBefore(@Param("categoryIds") java.util.Collection<Long> categoryIds,
+            @Param("requiredCategories") long requiredCategories, @Param("lastViews") long lastViews,
+            @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query(CARD_SELECT + "where " + CATEGORY_FILTER
+            + "and (coalesce(b.ratingAverage, 0.0) < :lastRating "
+            + "or (coalesce(b.ratingAverage, 0.0) = :lastRating and b.id < :lastId)) "
+            + "order by coalesce(b.ratingAverage, 0.0) desc, b.id desc")
+    Slice<BookCardView> findCardsByRatingBefore(@Param("categoryIds") java.util.Collection<Long> categoryIds,
+            @Param("requiredCategories") long requiredCategories, @Param("lastRating") double lastRating,
+            @Param("lastId") Long lastId, Pageable pageable);
+
+    // Forward-only stream of every card, newest first, for the JSON export; must run inside a transaction
+    @QueryHints(@jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(CARD_SELECT + "order by b.id desc")
+    java.util.stream.Stream<BookCardView> streamCards();
+
+    // Category names of a page of cards, loaded in one query
+    @Query("select b.id as bookId, c.name as name from Book b join b.categories c where b.id in :ids order by c.name")
+    java.util.List<BookCategoryName> findCategoryNamesByBookIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    // Forward-only stream used to (re)build the in-memory search index, in id order so posting
+    // lists are filled by appending; must run inside a transaction
+    @QueryHints(@jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select b.id as id, b.title as title, b.author as author, b.description as description from Book b order by b.id")
+    java.util.stream.Stream<BookSearchDocument> streamSearchDocuments();
+
+    // Forward-only stream used to (re)build the typeahead trie; must run inside a transaction
+    @QueryHints(@jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select b.id as id, b.title as title, b.author as author, b.viewCount as viewCount from Book b")
+    java.util.stream.Stream<BookTitleView> streamTitleViews();
+
+    // Forward-only stream of book_category rows used to build the facet bitmaps; must run inside a transaction
+    @QueryHints(@jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select b.id as bookId, c.id as categoryId from Book b left join b.categories c")
+    java.util.stream.Stream<BookCategoryLink> streamCategoryLinks();
+
+    java.util.List<BookViewSummary> findTop5ByOrderByViewCountDescIdDesc();
+
+    // --- Rating aggregates (see ReviewService) ---
+
+    /**
+     * Atomically apply a review change to a book's rating aggregates.
+     * The deltas are +1/-1 per star bucket; countDelta is 0 when an existing review changes its rating.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Book b set b.ratingCount = coalesce(b.ratingCount, 0L) + :countDelta, "
+            + "b.ratingSum = coalesce(b.ratingSum, 0L) + :sumDelta, "
+            + "b.rating1Count = coalesce(b.rating1Count, 0L) + :d1, "
+            + "b.rating2Count = coalesce(b.rating2Count, 0L) + :d2, "
+            + "b.rating3Count = coalesce(b.rating3Count, 0L) + :d3, "
+            + "b.rating4Count = coalesce(b.rating4Count, 0L) + :d4, "
+            + "b.rating5Count = coalesce(b.rating5Count, 0L) + :d5 "
+            + "where b.id = :bookId")
+    int applyRatingDelta(@Param("bookId") Long bookId, @Param("countDelta") long countDelta,
+            @Param("sumDelta") long sumDelta, @Param("d1") long d1, @Param("d2") long d2,
+            @Param("d3") long d3, @Param("d4") long d4, @Param("d5") long d5);
+
+    // Separate statement: the SET clause of the delta update sees old values on some databases and new ones on others
+    @Modifying
+    @Query("update Book b set b.ratingAverage = case when b.ratingCount > 0 "
+            + "then cast(b.ratingSum as Double) / b.ratingCount else 0.0 end where b.id = :bookId")
+    int refreshRatingAverage(@Param("bookId") Long bookId);
+
+    /**
+     * Recompute every book's rating aggregates from the review table (repair job)
+     */
+    @Modifying
+    @Query("update Book b set "
+            + "b.ratingCount = (select count(r) from Review r where r.book = b), "
+            + "b.ratingSum = (select coalesce(sum(r.rating), 0L) from Review r where r.book = b), "
+            + "b.rating1Count = (select count(r) from Review r where r.book = b and r.rating = 1), "
+            + "b.rating2Count = (select count(r) from Review r where r.book = b and r.rating = 2), "
+            + "b.rating3Count = (select count(r) from Review r where r.book = b and r.rating = 3), "
+            + "b.rating4Count = (select count(r) from Review r where r.book = b and r.rating = 4), "
+            + "b.rating5Count = (select count(r) from Review r where r.book = b and r.rating = 5)")
+    int recomputeRatingCounts();
+
+    @Modifying
+    @Query("update Book b set b.ratingAverage = case when b.ratingCount > 0 "
+            + "then cast(b.ratingSum as Double) / b.ratingCount else 0.0 end")
+    int recomputeRatingAverages();
+
+    boolean existsByRatingCountIsNull();
 }
@@ -0,0 +1,15 @@
+package com.example.demo.repository;
+
+/**
+ * Projection of the text fields indexed by the in-memory search index
+ */
+public interface BookSearchDocument {
+
+    Long getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    String getDescription();
+}
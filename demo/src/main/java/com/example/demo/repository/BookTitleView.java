@@ -0,0 +1,15 @@
+package com.example.demo.repository;
+
+/**
+ * Projection of the fields needed for typeahead suggestions
+ */
+public interface BookTitleView {
+
+    Long getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    Long getViewCount();
+}
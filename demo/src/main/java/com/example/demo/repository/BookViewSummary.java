@@ -0,0 +1,13 @@
+package com.example.demo.repository;
+
+/**
+ * Projection used for "most viewed" lists
+ */
+public interface BookViewSummary {
+
+    Long getId();
+
+    String getTitle();
+
+    Long getViewCount();
+}
@@ -0,0 +1,11 @@
+package com.example.demo.repository;
+
+/**
+ * Projection of (categoryId, bookCount) rows from the book_category join table
+ */
+public interface CategoryBookCount {
+
+    Long getCategoryId();
+
+    Long getBookCount();
+}
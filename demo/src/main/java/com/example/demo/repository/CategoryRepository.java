@@ -2,6 +2,9 @@ package com.example.demo.repository;
 
 import com.example.demo.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -10,4 +13,15 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     
     org.springframework.data.domain.Page<Category> findByNameContainingIgnoreCase(
             String name, org.springframework.data.domain.Pageable pageable);
+
+    // Book counts for a set of categories in one grouped query; categories without books are absent
+    @Query("select c.id as categoryId, count(b.id) as bookCount from Book b join b.categories c "
+            + "where c.id in :categoryIds group by c.id")
+    java.util.List<CategoryBookCount> countBooksByCategoryIds(
+            @Param("categoryIds") java.util.Collection<Long> categoryIds);
+
+    // Set-based cleanup of categories that no book references
+    @Modifying
+    @Query("delete from Category c where not exists (select 1 from Book b join b.categories bc where bc = c)")
+    int deleteEmptyCategories();
 }
@@ -0,0 +1,13 @@
+package com.example.demo.repository;
+
+/**
+ * Projection of a review reduced to who rated which book, used by the recommendation job
+ */
+public interface ReviewLink {
+
+    Long getBookId();
+
+    Long getUserId();
+
+    Integer getRating();
+}
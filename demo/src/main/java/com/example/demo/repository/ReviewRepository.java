@@ -2,6 +2,8 @@ package com.example.demo.repository;
 
 import com.example.demo.model.Review;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -10,4 +12,9 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByBookIdOrderByCreatedAtDesc(Long bookId);
 
     Review findByBookIdAndUserId(Long bookId, Long userId);
+
+    // Forward-only stream of (book, user, rating) for the similar-books job; must run inside a transaction
+    @QueryHints(@jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select r.book.id as bookId, r.user.id as userId, r.rating as rating from Review r")
+    java.util.stream.Stream<ReviewLink> streamReviewLinks();
 }
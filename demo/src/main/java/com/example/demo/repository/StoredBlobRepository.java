@@ -0,0 +1,91 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    Optional<StoredBlob> findByDigest(String digest);
+
+    // Reference counts change in place so concurrent saves of the same content do not lose updates
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.refCount = b.refCount + 1 where b.digest = :digest")
+    int incrementRefCount(@Param("digest") String digest);
+
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.refCount = b.refCount - 1 where b.digest = :digest and b.refCount > 0")
+    int decrementRefCount(@Param("digest") String digest);
+
+    @Modifying
+    @Query("update StoredBlob b set b.refCount = "
+            + "(select count(f) from BookFile f where f.contentDigest = b.digest)")
+    int recomputeRefCounts();
+
+    boolean existsByLocalName(String localName);
+
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.localName = :newName where b.localName = :oldName")
+    int updateLocalName(@Param("oldName") String oldName, @Param("newName") String newName);
+
+    // Local copies of blobs, streamed by the orphan reconciler; must run inside a transaction
+    @QueryHints(@jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select b.localName from StoredBlob b where b.localName is not null")
+    java.util.stream.Stream<String> streamLocalNames();
+
+    // The Drive file was removed: the next upload of this content must not reuse it
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.driveFileId = null, b.driveDownloadUrl = null where b.driveFileId = :driveFileId")
+    int clearDriveFileId(@Param("driveFileId") String driveFileId);
+
+    // The columns below change through targeted updates: saving a detached blob would write back
+    // stale values of columns another upload changed in the meantime
+
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.localName = :localName, b.contentType = coalesce(b.contentType, :contentType), "
+            + "b.registeredAt = :registeredAt, b.releaseLocalCopy = false where b.id = :id")
+    int markRegistered(@Param("id") Long id, @Param("localName") String localName,
+                       @Param("contentType") String contentType, @Param("registeredAt") LocalDateTime registeredAt);
+
+    // First upload wins: a Drive file recorded concurrently is kept
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.driveFileId = :driveFileId, b.driveDownloadUrl = :driveDownloadUrl "
+            + "where b.id = :id and b.driveFileId is null")
+    int recordDriveFile(@Param("id") Long id, @Param("driveFileId") String driveFileId,
+                        @Param("driveDownloadUrl") String driveDownloadUrl);
+
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.releaseLocalCopy = true where b.id = :id and b.localName = :localName")
+    int requestLocalCopyRelease(@Param("id") Long id, @Param("localName") String localName);
+
+    // Only while no upload registered the content since the cutoff, so the copy is not in use
+    @Modifying
+    @Query("update StoredBlob b set b.localName = null, b.releaseLocalCopy = false where b.id = :id "
+            + "and b.localName = :localName and coalesce(b.registeredAt, b.createdAt) < :cutoff")
+    int releaseLocalName(@Param("id") Long id, @Param("localName") String localName,
+                         @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("select b from StoredBlob b where b.refCount = 0 and coalesce(b.registeredAt, b.createdAt) < :cutoff")
+    List<StoredBlob> findUnreferencedRegisteredBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("select b from StoredBlob b where b.releaseLocalCopy = true and b.localName is not null "
+            + "and coalesce(b.registeredAt, b.createdAt) < :cutoff")
+    List<StoredBlob> findLocalCopiesToRelease(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,11 +2,20 @@ package com.example.demo.repository;
 
 import com.example.demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Exact match on the unique email index; callers pass User.normalizeEmail(email)
     User findByEmail(String email);
+
+    // One-off normalization of emails stored before they were normalized on save
+    @org.springframework.transaction.annotation.Transactional
+    @Modifying
+    @Query("update User u set u.email = lower(trim(u.email)) where u.email is not null and u.email <> lower(trim(u.email))")
+    int normalizeStoredEmails();
     
     org.springframework.data.domain.Page<User> findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCaseOrFullNameContainingIgnoreCase(
             String username, String email, String fullName, org.springframework.data.domain.Pageable pageable);
@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.model.StoredBlob;
+import com.example.demo.repository.BookFileRepository;
+import com.example.demo.repository.StoredBlobRepository;
+import com.google.api.services.drive.model.File;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bookkeeping of content-addressed files: one StoredBlob per SHA-256 digest with its local copy,
+ * its Drive upload and the number of BookFile rows using it.
+ * Reference counts are kept up to date by BookService and recomputed nightly; blobs nobody
+ * references lose their local copy after a grace period. Their Drive file is kept so the same
+ * content uploaded again reuses it, until the OrphanReconciler trashes it.
+ * Blobs are shared by concurrent uploads, so they are changed through targeted update queries
+ * and local copies are only deleted once no upload registered the content for the grace period.
+ */
+@Service
+public class BlobStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreService.class);
+
+    // Blobs registered more recently than this may belong to a book that is still being saved
+    private static final long GRACE_HOURS = 24;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private BookFileRepository bookFileRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    /**
+     * Blob of freshly stored content, created on first sight. If the blob already has a local
+     * copy under another name (different extension) the new file is dropped in favour of it.
+     * Not transactional: a duplicate insert by a concurrent upload is caught and re-read.
+     */
+    public StoredBlob register(FileStorageService.StoredContent content, String contentType) {
+        StoredBlob blob = storedBlobRepository.findByDigest(content.getDigest()).orElse(null);
+        if (blob == null) {
+            blob = new StoredBlob();
+            blob.setDigest(content.getDigest());
+            blob.setSize(content.getSize());
+            blob.setContentType(contentType);
+            blob.setLocalName(content.getFileName());
+            try {
+                return storedBlobRepository.saveAndFlush(blob);
+            } catch (DataIntegrityViolationException e) {
+                // Registered concurrently by another upload of the same content
+                blob = storedBlobRepository.findByDigest(content.getDigest()).orElseThrow(() -> e);
+            }
+        }
+
+        String localName = blob.getLocalName();
+        if (localName == null || !Files.exists(fileStorageService.getFileStorageLocation().resolve(localName))) {
+            localName = content.getFileName();
+        } else if (!localName.equals(content.getFileName()) && content.isCreated()) {
+            fileStorageService.deleteFile(content.getFileName());
+        }
+        LocalDateTime registeredAt = LocalDateTime.now();
+        storedBlobRepository.markRegistered(blob.getId(), localName, contentType, registeredAt);
+        blob.setLocalName(localName);
+        if (blob.getContentType() == null) {
+            blob.setContentType(contentType);
+        }
+        blob.setRegisteredAt(registeredAt);
+        blob.setReleaseLocalCopy(false);
+        logger.info("♻️ Content {} already stored{}", content.getDigest(),
+                blob.getDriveFileId() != null ? " (Drive file " + blob.getDriveFileId() + ")" : "");
+        return blob;
+    }
+
+    /**
+     * Remember where the content was uploaded so the next copy skips the upload.
+     * If another upload of the same content recorded its Drive file first, that one is kept.
+     */
+    public StoredBlob recordDriveUpload(StoredBlob blob, File driveFile) {
+        if (storedBlobRepository.recordDriveFile(blob.getId(), driveFile.getId(),
+                GoogleDriveService.toDownloadUrl(driveFile)) == 0) {
+            logger.info("♻️ Content {} was uploaded concurrently, keeping Drive file {} for it",
+                    blob.getDigest(), driveFile.getId());
+            return storedBlobRepository.findById(blob.getId()).orElse(blob);
+        }
+        blob.setDriveFileId(driveFile.getId());
+        blob.setDriveDownloadUrl(GoogleDriveService.toDownloadUrl(driveFile));
+        return blob;
+    }
+
+    /**
+     * Keep the content only on Drive. The local copy is deleted by the nightly repair once no
+     * upload registered the content for the grace period and no BookFile serves it from uploads/:
+     * another upload of the same content may be using it until it has saved its BookFile.
+     */
+    public void discardLocalCopy(StoredBlob blob) {
+        String localName = blob.getLocalName();
+        if (localName == null) {
+            return;
+        }
+        storedBlobRepository.requestLocalCopyRelease(blob.getId(), localName);
+        logger.info("📁 Local copy {} will be released after {} hours without new uploads", localName, GRACE_HOURS);
+    }
+
+    public void addReference(String digest) {
+        storedBlobRepository.incrementRefCount(digest);
+    }
+
+    public void removeReferences(List<String> digests) {
+        for (String digest : digests) {
+            storedBlobRepository.decrementRefCount(digest);
+        }
+    }
+
+    /**
+     * Recompute reference counts from book_file, drop the local copies of unreferenced blobs and
+     * of blobs kept only on Drive. Repairs drift from files removed without going through
+     * BookService.deleteById.
+     */
+    @Scheduled(cron = "${library.blobs.repair-cron:0 45 3 * * *}")
+    @Transactional
+    public void repairReferenceCounts() {
+        long start = System.currentTimeMillis();
+        int updated = storedBlobRepository.recomputeRefCounts();
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(GRACE_HOURS);
+        int released = 0;
+        for (StoredBlob blob : storedBlobRepository.findUnreferencedRegisteredBefore(cutoff)) {
+            if (blob.getDriveFileId() == null) {
+                if (blob.getLocalName() != null) {
+                    fileStorageService.deleteFile(blob.getLocalName());
+                }
+                storedBlobRepository.delete(blob);
+            } else if (blob.getLocalName() != null) {
+                if (storedBlobRepository.releaseLocalName(blob.getId(), blob.getLocalName(), cutoff) == 0) {
+                    continue;
+                }
+                fileStorageService.deleteFile(blob.getLocalName());
+            } else {
+                continue;
+            }
+            released++;
+        }
+        for (StoredBlob blob : storedBlobRepository.findLocalCopiesToRelease(cutoff)) {
+            if (bookFileRepository.existsByFilePath(blob.getLocalName())) {
+                // Another book serves the content from uploads/
+                continue;
+            }
+            if (storedBlobRepository.releaseLocalName(blob.getId(), blob.getLocalName(), cutoff) == 1) {
+                fileStorageService.deleteFile(blob.getLocalName());
+                released++;
+            }
+        }
+        logger.info("Blob reference counts recomputed for {} blobs, {} unreferenced released in {} ms",
+                updated, released, System.currentTimeMillis() - start);
+    }
+}
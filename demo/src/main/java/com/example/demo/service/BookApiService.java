@@ -0,0 +1,408 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Category;
+import com.example.demo.repository.BookCardView;
+import com.example.demo.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the /api/books JSON API: sorted cursor pages with field selection,
+ * and a streaming export of the whole catalog.
+ * Cursors are opaque to clients: the sort order plus the sort key and id of the last
+ * book returned, so every page is a keyset query whatever its depth.
+ */
+@Service
+public class BookApiService {
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+    /** Every selectable field, in output order */
+    public static final List<String> FIELDS = List.of("id", "title", "author", "imageUrl", "coverUrl",
+            "viewCount", "ratingAverage", "ratingCount", "categories");
+    // Rows written between two flushes of the export stream
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
+    public enum Sort {
+        /** Search ranking; only meaningful with a keyword, otherwise the same as NEWEST */
+        RELEVANCE,
+        NEWEST,
+        VIEWS,
+        RATING;
+
+        public static Sort parse(String value, boolean hasKeyword) {
+            if (value == null || value.isBlank()) {
+                return hasKeyword ? RELEVANCE : NEWEST;
+            }
+            try {
+                Sort sort = valueOf(value.trim().toUpperCase(Locale.ROOT));
+                return sort == RELEVANCE && !hasKeyword ? NEWEST : sort;
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort: " + value);
+            }
+        }
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryFacetIndex categoryFacetIndex;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Value("${library.api.export-max-concurrent:2}")
+    private int maxConcurrentExports;
+
+    @Value("${library.api.export-timeout-seconds:300}")
+    private long exportTimeoutSeconds;
+
+    // Each running export holds a database connection for as long as the client reads
+    private Semaphore exportSlots;
+
+    @PostConstruct
+    public void init() {
+        exportSlots = new Semaphore(Math.max(1, maxConcurrentExports));
+    }
+
+    /**
+     * Reserve one of the export slots; release it with finishExport once the export ends
+     * @return false if the maximum number of exports is already running
+     */
+    public boolean tryStartExport() {
+        return exportSlots.tryAcquire();
+    }
+
+    public void finishExport() {
+        exportSlots.release();
+    }
+
+    /**
+     * One page of books as JSON-ready maps
+     * @param keyword Optional search keyword
+     * @param categoryIds Optional category filter
+     * @param matchAll true = book must be in every category, false = in any of them
+     * @param sort Order of the results
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param size Page size (clamped to MAX_PAGE_SIZE)
+     * @param fields Fields to include in each item
+     * @return Map with "items" and "nextCursor" (null on the last page)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> findPage(String keyword, Collection<Long> categoryIds, boolean matchAll,
+            Sort sort, String cursor, int size, Set<String> fields) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        String[] after = decodeCursor(cursor, sort);
+        boolean hasKeyword = keyword != null && !keyword.trim().isEmpty();
+        Set<Long> categories = categoryIds != null ? new LinkedHashSet<>(categoryIds) : Set.of();
+
+        Slice<BookCard> slice;
+        String catalogCursor = null;
+        if (sort == Sort.RELEVANCE || (sort == Sort.NEWEST && !hasKeyword)) {
+            // Same paths as the HTML catalog: id-ordered keyset or search ranking, same cursor
+            BookService.CatalogPage catalogPage = bookService.findCatalogPage(keyword, null, categories, matchAll,
+                    after != null ? after[0] : null, pageSize);
+            slice = catalogPage.getSlice();
+            catalogCursor = catalogPage.getNextCursor();
+        } else if (hasKeyword) {
+            slice = sortSearchResults(keyword, categories, matchAll, sort, after, pageSize);
+        } else {
+            Pageable pageable = PageRequest.of(0, pageSize);
+            Collection<Long> filter = categories.isEmpty() ? List.of(0L) : categories;
+            long required = categories.isEmpty() ? 0 : matchAll ? categories.size() : 1;
+            Long lastId = after != null ? parseId(after[1]) : Long.MAX_VALUE;
+            Slice<BookCardView> views = sort == Sort.VIEWS
+                    ? bookRepository.findCardsByViewsBefore(filter, required,
+                            after != null ? parseId(after[0]) : Long.MAX_VALUE, lastId, pageable)
+                    : bookRepository.findCardsByRatingBefore(filter, required,
+                            after != null ? parseDouble(after[0]) : Double.MAX_VALUE, lastId, pageable);
+            slice = bookService.toCardSlice(views);
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>(slice.getNumberOfElements());
+        for (BookCard card : slice.getContent()) {
+            items.add(toItem(card, fields));
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", items);
+        if (catalogCursor != null) {
+            page.put("nextCursor", encodeCursor(sort, catalogCursor));
+        } else {
+            page.put("nextCursor", slice.hasNext() && !slice.isEmpty()
+                    ? encodeCursor(sort, slice.getContent().get(slice.getNumberOfElements() - 1)) : null);
+        }
+        return page;
+    }
+
+    /**
+     * Write every book as one JSON array, newest first. Rows come from a forward-only
+     * cursor and go to the generator in batches of EXPORT_FLUSH_ROWS, so memory use does
+     * not depend on the number of books. Categories are taken from the in-memory facet
+     * index, or loaded per batch while it is still building.
+     * The transaction (and its connection) lives as long as the client reads, so the export
+     * is aborted after library.api.export-timeout-seconds.
+     */
+    @Transactional(readOnly = true, timeoutString = "${library.api.export-timeout-seconds:300}")
+    public void exportAll(OutputStream out, Set<String> fields) {
+        long deadline = System.currentTimeMillis() + exportTimeoutSeconds * 1000;
+        Map<Long, String> categoryNames = new HashMap<>();
+        if (fields.contains("categories") && categoryFacetIndex.isReady()) {
+            for (Category category : categoryService.findAll()) {
+                categoryNames.put(category.getId(), category.getName());
+            }
+        }
+        try (JsonGenerator generator = jsonMapper.createGenerator(out);
+                Stream<BookCardView> rows = bookRepository.streamCards()) {
+            generator.writeStartArray();
+            List<BookCardView> batch = new ArrayList<>(EXPORT_FLUSH_ROWS);
+            rows.forEach(row -> {
+                batch.add(row);
+                if (batch.size() == EXPORT_FLUSH_ROWS) {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new IllegalStateException("Export exceeded " + exportTimeoutSeconds + " s, aborted");
+                    }
+                    writeBatch(generator, batch, fields, categoryNames);
+                }
+            });
+            writeBatch(generator, batch, fields, categoryNames);
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeBatch(JsonGenerator generator, List<BookCardView> batch, Set<String> fields,
+            Map<Long, String> categoryNames) {
+        Map<Long, List<String>> namesByBook = new HashMap<>();
+        if (fields.contains("categories") && !batch.isEmpty()) {
+            if (categoryFacetIndex.isReady()) {
+                for (BookCardView row : batch) {
+                    List<String> names = new ArrayList<>();
+                    for (long categoryId : categoryFacetIndex.categoriesOf(row.getId())) {
+                        String name = categoryNames.get(categoryId);
+                        if (name != null) {
+                            names.add(name);
+                        }
+                    }
+                    namesByBook.put(row.getId(), names);
+                }
+            } else {
+                // Facets not built yet: one query for the whole batch
+                bookRepository.findCategoryNamesByBookIdIn(batch.stream().map(BookCardView::getId).toList())
+                        .forEach(name -> namesByBook.computeIfAbsent(name.getBookId(), id -> new ArrayList<>())
+                                .add(name.getName()));
+            }
+        }
+        for (BookCardView row : batch) {
+            BookCard card = BookCard.from(row, namesByBook.getOrDefault(row.getId(), List.of()));
+            generator.writeStartObject();
+            for (String field : FIELDS) {
+                if (fields.contains(field)) {
+                    generator.writeName(field);
+                    writeValue(generator, valueOf(card, field));
+                }
+            }
+            generator.writeEndObject();
+        }
+        generator.flush();
+        batch.clear();
+    }
+
+    /**
+     * Parse the fields parameter ("id,title,..."); null or blank selects every field
+     */
+    public static Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return new LinkedHashSet<>(FIELDS);
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        selected.add("id"); // Always present, clients need it to follow up
+        return selected;
+    }
+
+    // Keyword results are bounded (search limit), so they are sorted in memory
+    private Slice<BookCard> sortSearchResults(String keyword, Set<Long> categories, boolean matchAll,
+            Sort sort, String[] after, int pageSize) {
+        List<Long> ids = bookService.searchIds(keyword);
+        if (!categories.isEmpty() && categoryFacetIndex.isReady()) {
+            RoaringBitmap selection = categoryFacetIndex.match(categories, matchAll);
+            ids = ids.stream().filter(id -> CategoryFacetIndex.contains(selection, id)).toList();
+        }
+        List<BookCardView> views = ids.isEmpty() ? List.of() : new ArrayList<>(bookRepository.findCardsByIdIn(ids));
+        Comparator<BookCardView> order = switch (sort) {
+            case VIEWS -> Comparator.comparingLong(BookApiService::viewsOf);
+            case RATING -> Comparator.comparingDouble(BookApiService::ratingOf);
+            default -> Comparator.comparingLong(BookCardView::getId);
+        };
+        order = order.thenComparingLong(BookCardView::getId).reversed();
+        views.sort(order);
+
+        int from = 0;
+        if (after != null) {
+            while (from < views.size() && !isAfter(views.get(from), sort, after)) {
+                from++;
+            }
+        }
+        int to = Math.min(from + pageSize, views.size());
+        List<Long> pageIds = views.subList(from, to).stream().map(BookCardView::getId).toList();
+        return new org.springframework.data.domain.SliceImpl<>(bookService.findCardsByIdInOrder(pageIds),
+                PageRequest.of(0, pageSize), to < views.size());
+    }
+
+    // true if the row comes strictly after the cursor position in the (descending) order
+    private static boolean isAfter(BookCardView row, Sort sort, String[] after) {
+        long id = row.getId();
+        return switch (sort) {
+            case VIEWS -> {
+                long last = parseId(after[0]);
+                yield viewsOf(row) < last || (viewsOf(row) == last && id < parseId(after[1]));
+            }
+            case RATING -> {
+                double last = parseDouble(after[0]);
+                yield ratingOf(row) < last || (ratingOf(row) == last && id < parseId(after[1]));
+            }
+            default -> id < parseId(after[0]);
+        };
+    }
+
+    private static Map<String, Object> toItem(BookCard card, Set<String> fields) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        for (String field : FIELDS) {
+            if (fields.contains(field)) {
+                item.put(field, valueOf(card, field));
+            }
+        }
+        return item;
+    }
+
+    private static Object valueOf(BookCard card, String field) {
+        return switch (field) {
+            case "id" -> card.getId();
+            case "title" -> card.getTitle();
+            case "author" -> card.getAuthor();
+            case "imageUrl" -> card.getImageUrl();
+            case "coverUrl" -> card.getCoverUrl();
+            case "viewCount" -> card.getViewCount();
+            case "ratingAverage" -> card.getRatingAverage();
+            case "ratingCount" -> card.getRatingCount();
+            case "categories" -> card.getCategoryNames();
+            default -> throw new IllegalArgumentException("Unknown field: " + field);
+        };
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number);
+        } else if (value instanceof List<?> list) {
+            generator.writeStartArray();
+            for (Object element : list) {
+                generator.writeString(String.valueOf(element));
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static String encodeCursor(Sort sort, BookCard last) {
+        return encodeCursor(sort, switch (sort) {
+            case VIEWS -> last.getViewCount() + ":" + last.getId();
+            case RATING -> last.getRatingAverage() + ":" + last.getId();
+            default -> String.valueOf(last.getId());
+        });
+    }
+
+    private static String encodeCursor(Sort sort, String position) {
+        String raw = sort.name().toLowerCase(Locale.ROOT) + ":" + position;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The position parts of the cursor (after the sort name), or null for the first page
+     */
+    private static String[] decodeCursor(String cursor, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = raw.split(":");
+        int expected = sort == Sort.VIEWS || sort == Sort.RATING ? 3 : 2;
+        if (parts.length != expected || !parts[0].equals(sort.name().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        return java.util.Arrays.copyOfRange(parts, 1, parts.length);
+    }
+
+    private static long parseId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static long viewsOf(BookCardView row) {
+        return row.getViewCount() != null ? row.getViewCount() : 0L;
+    }
+
+    private static double ratingOf(BookCardView row) {
+        return row.getRatingAverage() != null ? row.getRatingAverage() : 0.0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookCardView;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Read model of a book card: the few columns a list page renders plus the
+ * category names, without the description or the files/reviews collections
+ */
+public class BookCard {
+
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final String imageUrl;
+    private final long viewCount;
+    private final double ratingAverage;
+    private final long ratingCount;
+    private final List<String> categoryNames;
+
+    public BookCard(Long id, String title, String author, String imageUrl, long viewCount,
+            double ratingAverage, long ratingCount, List<String> categoryNames) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.imageUrl = imageUrl;
+        this.viewCount = viewCount;
+        this.ratingAverage = ratingAverage;
+        this.ratingCount = ratingCount;
+        this.categoryNames = List.copyOf(categoryNames);
+    }
+
+    public static BookCard from(BookCardView view, List<String> categoryNames) {
+        return new BookCard(view.getId(), view.getTitle(), view.getAuthor(), view.getImageUrl(),
+                view.getViewCount() != null ? view.getViewCount() : 0L,
+                view.getRatingAverage() != null ? view.getRatingAverage() : 0.0,
+                view.getRatingCount() != null ? view.getRatingCount() : 0L,
+                categoryNames);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public double getRatingAverage() {
+        return ratingAverage;
+    }
+
+    public long getRatingCount() {
+        return ratingCount;
+    }
+
+    /**
+     * Local thumbnail URL of the cover, null if the book has none
+     */
+    public String getCoverUrl() {
+        return CoverImageService.coverUrl(id, imageUrl, CoverImageService.CARD_WIDTH);
+    }
+
+    public List<String> getCategoryNames() {
+        return categoryNames;
+    }
+
+    /**
+     * Two cards are equal when they render the same, which lets a rendered card be
+     * cached with the card itself as its version (see RenderedFragmentCache)
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BookCard other)) {
+            return false;
+        }
+        return viewCount == other.viewCount
+                && Double.compare(ratingAverage, other.ratingAverage) == 0
+                && ratingCount == other.ratingCount
+                && Objects.equals(id, other.id)
+                && Objects.equals(title, other.title)
+                && Objects.equals(author, other.author)
+                && Objects.equals(imageUrl, other.imageUrl)
+                && categoryNames.equals(other.categoryNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, author, imageUrl, viewCount, ratingAverage, ratingCount, categoryNames);
+    }
+}
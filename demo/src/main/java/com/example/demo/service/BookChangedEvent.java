@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+
+/**
+ * Published by BookService whenever a book is saved or deleted so that the in-memory
+ * read structures (search index etc.) can update incrementally.
+ * The event carries a copy of the indexed fields rather than the entity itself,
+ * because listeners run after commit when the persistence context may be gone.
+ */
+public class BookChangedEvent {
+
+    private final Long bookId;
+    private final boolean deleted;
+    private final String title;
+    private final String author;
+    private final String description;
+    private final long viewCount;
+    private final java.util.Set<Long> categoryIds;
+
+    private BookChangedEvent(Long bookId, boolean deleted, String title, String author, String description,
+            long viewCount, java.util.Set<Long> categoryIds) {
+        this.bookId = bookId;
+        this.deleted = deleted;
+        this.title = title;
+        this.author = author;
+        this.description = description;
+        this.viewCount = viewCount;
+        this.categoryIds = categoryIds;
+    }
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(book.getId(), false, book.getTitle(), book.getAuthor(), book.getDescription(),
+                book.getViewCount(), categoryIdsOf(book));
+    }
+
+    public static BookChangedEvent deleted(Long bookId) {
+        return new BookChangedEvent(bookId, true, null, null, null, 0L, java.util.Set.of());
+    }
+
+    private static java.util.Set<Long> categoryIdsOf(Book book) {
+        if (book.getCategories() == null) {
+            return java.util.Set.of();
+        }
+        return book.getCategories().stream()
+                .map(com.example.demo.model.Category::getId)
+                .filter(java.util.Objects::nonNull)
+                .collect(java.util.stream.Collectors.toUnmodifiableSet());
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public java.util.Set<Long> getCategoryIds() {
+        return categoryIds;
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookSearchDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over Book.title, author and description.
+ * Terms are accent-folded (see TextNormalizer) so "tieng viet" matches "Tiếng Việt".
+ * Each term maps to a posting list of (bookId, field weight) sorted by book id; queries AND all
+ * terms together and rank by a tf-idf style score, so lookups never touch the database.
+ * A query walks the rarest term's list from the newest book and probes the other lists with
+ * binary searches, keeping only the best results; it stops once no older book can enter them,
+ * and after MAX_SCANNED_POSTINGS books for very common terms.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final int TITLE_WEIGHT = 5;
+    private static final int AUTHOR_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // Only the first distinct description terms are indexed to keep memory bounded
+    private static final int MAX_DESCRIPTION_TERMS = 200;
+    // Books of the rarest query term ranked at most, newest first: bounds queries made only of
+    // very common terms, whose older matches are not reachable in the catalog anyway
+    private static final int MAX_SCANNED_POSTINGS = 20_000;
+
+    // Lowest score first, oldest first on ties: the head is the first result to drop
+    private static final Comparator<ScoredBook> WORST_FIRST = Comparator.<ScoredBook>comparingDouble(b -> b.score)
+            .thenComparingLong(b -> b.bookId);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<PostingList> postings = new ArrayList<>();
+    private final Map<Long, int[]> documentTerms = new HashMap<>();
+    private volatile boolean ready = false;
+
+    /**
+     * Build the index from the database once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try (Stream<BookSearchDocument> documents = bookRepository.streamSearchDocuments()) {
+            termIds.clear();
+            postings.clear();
+            documentTerms.clear();
+            documents.forEach(doc -> addDocument(doc.getId(), doc.getTitle(), doc.getAuthor(), doc.getDescription()));
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Search index built: {} books, {} terms in {} ms",
+                documentTerms.size(), termIds.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.getBookId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(event.getBookId());
+            if (!event.isDeleted()) {
+                addDocument(event.getBookId(), event.getTitle(), event.getAuthor(), event.getDescription());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Find books matching every term of the query
+     * @param query Free-text query, accents optional
+     * @param limit Maximum number of ids to return
+     * @return Book ids ordered by relevance (best first, newest first on ties)
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query).stream().distinct().toList();
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[tokens.size()];
+            for (int l = 0; l < lists.length; l++) {
+                Integer termId = termIds.get(tokens.get(l));
+                if (termId == null) {
+                    return List.of(); // AND semantics: an unknown term matches nothing
+                }
+                lists[l] = postings.get(termId);
+            }
+            // Walk the rarest term; the others are only probed
+            Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+            PostingList rarest = lists[0];
+
+            double totalDocs = Math.max(1, documentTerms.size());
+            double[] idf = new double[lists.length];
+            // Books after the scan position are older, so each probe only searches below the last hit
+            int[] upper = new int[lists.length];
+            double bestPossible = 0;
+            for (int l = 0; l < lists.length; l++) {
+                idf[l] = Math.log(1 + totalDocs / Math.max(1, lists[l].size()));
+                upper[l] = lists[l].size();
+                bestPossible += lists[l].maxWeight * idf[l];
+            }
+
+            PriorityQueue<ScoredBook> top = new PriorityQueue<>(Math.min(limit, 1024) + 1, WORST_FIRST);
+            int last = Math.max(0, rarest.size() - MAX_SCANNED_POSTINGS);
+            candidates:
+            for (int i = rarest.size() - 1; i >= last; i--) {
+                long bookId = rarest.docs[i];
+                double score = rarest.weights[i] * idf[0];
+                for (int l = 1; l < lists.length; l++) {
+                    int position = Arrays.binarySearch(lists[l].docs, 0, upper[l], bookId);
+                    if (position < 0) {
+                        upper[l] = -position - 1;
+                        continue candidates;
+                    }
+                    upper[l] = position;
+                    score += lists[l].weights[position] * idf[l];
+                }
+                // Older books only replace a result with a strictly better score (newest first on ties)
+                if (top.size() < limit) {
+                    top.add(new ScoredBook(bookId, score));
+                } else if (score > top.peek().score) {
+                    top.poll();
+                    top.add(new ScoredBook(bookId, score));
+                }
+                if (top.size() == limit && top.peek().score >= bestPossible) {
+                    break;
+                }
+            }
+
+            List<ScoredBook> ranked = new ArrayList<>(top);
+            ranked.sort(WORST_FIRST.reversed());
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (ScoredBook book : ranked) {
+                ids.add(book.bookId);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers must hold the write lock
+    private void addDocument(Long bookId, String title, String author, String description) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String token : TextNormalizer.tokenize(title)) {
+            weights.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : TextNormalizer.tokenize(author)) {
+            weights.merge(token, AUTHOR_WEIGHT, Integer::sum);
+        }
+        int descriptionTerms = 0;
+        for (String token : TextNormalizer.tokenize(description)) {
+            if (weights.containsKey(token)) {
+                weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+            } else if (descriptionTerms < MAX_DESCRIPTION_TERMS) {
+                weights.put(token, DESCRIPTION_WEIGHT);
+                descriptionTerms++;
+            }
+        }
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        int[] terms = new int[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            int termId = termIds.computeIfAbsent(entry.getKey(), t -> {
+                postings.add(new PostingList());
+                return postings.size() - 1;
+            });
+            postings.get(termId).add(bookId, entry.getValue());
+            terms[i++] = termId;
+        }
+        documentTerms.put(bookId, terms);
+    }
+
+    // Callers must hold the write lock
+    private void removeDocument(Long bookId) {
+        int[] terms = documentTerms.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (int termId : terms) {
+            postings.get(termId).remove(bookId);
+        }
+    }
+
+    private static final class ScoredBook {
+        private final long bookId;
+        private final double score;
+
+        ScoredBook(long bookId, double score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Growable parallel arrays of (bookId, weight) sorted by book id. New books have the
+     * highest ids, so adding is usually an append; removal is a binary search and one shift.
+     */
+    private static final class PostingList {
+        private long[] docs = new long[4];
+        private int[] weights = new int[4];
+        private int size = 0;
+        // Upper bound of the weights (not lowered on removal), for the early stop of queries
+        private int maxWeight = 0;
+
+        int size() {
+            return size;
+        }
+
+        void add(long doc, int weight) {
+            int position = size == 0 || docs[size - 1] < doc ? size : Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0 && position < size) {
+                weights[position] = weight;
+            } else {
+                if (position < 0) {
+                    position = -position - 1;
+                }
+                if (size == docs.length) {
+                    docs = Arrays.copyOf(docs, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                }
+                System.arraycopy(docs, position, docs, position + 1, size - position);
+                System.arraycopy(weights, position, weights, position + 1, size - position);
+                docs[position] = doc;
+                weights[position] = weight;
+                size++;
+            }
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        void remove(long doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) {
+                return;
+            }
+            size--;
+            System.arraycopy(docs, position + 1, docs, position, size - position);
+            System.arraycopy(weights, position + 1, weights, position, size - position);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.google.api.services.drive.model.File;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -17,6 +18,14 @@ public class BookService {
 
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
+    public static final int CATALOG_DEFAULT_PAGE_SIZE = 24;
+    public static final int CATALOG_MAX_PAGE_SIZE = 60;
+    // Upper bound on ranked ids taken from the search index for one query
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    // Below this many exact results the typo-tolerant index is consulted as well
+    private static final int FUZZY_FALLBACK_THRESHOLD = 5;
+    private static final int MAX_FUZZY_RESULTS = 50;
+
     @Autowired
     private BookRepository bookRepository;
 
@@ -26,27 +35,287 @@ public class BookService {
     @Autowired
     private GoogleDriveService googleDriveService;
 
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private com.example.demo.repository.BookFileRepository bookFileRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private FuzzyTitleIndex fuzzyTitleIndex;
+
+    @Autowired
+    private CategoryFacetIndex categoryFacetIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Book> findAll() {
         return bookRepository.findAll();
     }
 
-    public org.springframework.data.domain.Page<Book> findAll(org.springframework.data.domain.Pageable pageable) {
-        return bookRepository.findAll(pageable);
+    /**
+     * One page of book cards for the admin list
+     */
+    public org.springframework.data.domain.Page<BookCard> findCards(org.springframework.data.domain.Pageable pageable) {
+        return toCardPage(bookRepository.findCards(pageable));
     }
 
-    public org.springframework.data.domain.Page<Book> search(String keyword, org.springframework.data.domain.Pageable pageable) {
+    public org.springframework.data.domain.Page<BookCard> searchCards(String keyword,
+            org.springframework.data.domain.Pageable pageable) {
         if (keyword == null || keyword.trim().isEmpty()) {
-            return bookRepository.findAll(pageable);
+            return findCards(pageable);
+        }
+        if (!bookSearchIndex.isReady()) {
+            return toCardPage(bookRepository.searchCards(keyword.trim(), pageable));
         }
-        return bookRepository.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(keyword, keyword, pageable);
+
+        List<Long> rankedIds = searchIds(keyword);
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.size());
+        int to = Math.min(from + pageable.getPageSize(), rankedIds.size());
+        return new org.springframework.data.domain.PageImpl<>(
+                findCardsByIdInOrder(rankedIds.subList(from, to)), pageable, rankedIds.size());
+    }
+
+    /**
+     * One page of the public catalog and the cursor of the page after it
+     */
+    public static final class CatalogPage {
+        private final org.springframework.data.domain.Slice<BookCard> slice;
+        private final String nextCursor;
+
+        CatalogPage(org.springframework.data.domain.Slice<BookCard> slice, String nextCursor) {
+            this.slice = slice;
+            this.nextCursor = nextCursor;
+        }
+
+        public org.springframework.data.domain.Slice<BookCard> getSlice() {
+            return slice;
+        }
+
+        /** Null on the last page */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    /**
+     * Ranked ids for a catalog keyword, computed once per request and shared by
+     * findCatalogPage and countCatalogFacets
+     * @return null without a keyword or while the search index is still building
+     */
+    public List<Long> findCatalogRanking(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty() || !bookSearchIndex.isReady()) {
+            return null;
+        }
+        return searchIds(keyword);
+    }
+
+    /**
+     * Load one page of the public catalog using keyset pagination.
+     * Books are ordered by id (newest first); the cursor is the id of the last book
+     * on the previous page, so the cost of a page does not depend on how deep it is.
+     * Keyword results follow the search ranking instead and their cursor is
+     * "offset.id": the number of ranked books already shown and the id of the last one.
+     * @param keyword Optional keyword, results are ranked by relevance
+     * @param rankedIds Result of findCatalogRanking(keyword), or null to compute it here
+     * @param categoryIds Optional category filter, combined with the keyword
+     * @param matchAll true = book must be in every selected category, false = in any of them
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param size Requested page size (clamped to CATALOG_MAX_PAGE_SIZE)
+     */
+    public CatalogPage findCatalogPage(String keyword, List<Long> rankedIds,
+            java.util.Collection<Long> categoryIds, boolean matchAll, String cursor, int size) {
+        int pageSize = size <= 0 ? CATALOG_DEFAULT_PAGE_SIZE : Math.min(size, CATALOG_MAX_PAGE_SIZE);
+        org.springframework.data.domain.Pageable pageable =
+                org.springframework.data.domain.PageRequest.of(0, pageSize);
+        boolean hasCategories = categoryIds != null && !categoryIds.isEmpty();
+        org.roaringbitmap.RoaringBitmap selection = hasCategories && categoryFacetIndex.isReady()
+                ? categoryFacetIndex.match(categoryIds, matchAll)
+                : null;
+
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            if (rankedIds == null) {
+                rankedIds = findCatalogRanking(keyword);
+            }
+            if (rankedIds == null) {
+                long before = cursor != null ? parseCursorId(cursor) : Long.MAX_VALUE;
+                return idPage(toCardSlice(bookRepository.findCardsByTitleBefore(keyword.trim(), before, pageable)));
+            }
+            // Keyword results are ranked by relevance; the ranking is deterministic,
+            // so the cursor is the position right after the last id already shown
+            if (selection != null) {
+                rankedIds = rankedIds.stream().filter(id -> CategoryFacetIndex.contains(selection, id)).toList();
+            }
+            int from = cursor != null ? rankOffsetAfter(rankedIds, cursor) : 0;
+            if (from < 0) {
+                // The ranking changed under the cursor: end the listing rather than start over
+                return new CatalogPage(new org.springframework.data.domain.SliceImpl<>(List.of(), pageable, false),
+                        null);
+            }
+            int to = Math.min(from + pageSize, rankedIds.size());
+            List<BookCard> cards = findCardsByIdInOrder(rankedIds.subList(from, to));
+            boolean hasNext = to < rankedIds.size();
+            return new CatalogPage(new org.springframework.data.domain.SliceImpl<>(cards, pageable, hasNext),
+                    hasNext ? to + "." + rankedIds.get(to - 1) : null);
+        }
+
+        long before = cursor != null ? parseCursorId(cursor) : Long.MAX_VALUE;
+        if (selection != null) {
+            // One extra id tells whether there is a next page
+            List<Long> ids = CategoryFacetIndex.pageDescending(selection, before == Long.MAX_VALUE ? null : before,
+                    pageSize + 1);
+            boolean hasNext = ids.size() > pageSize;
+            return idPage(new org.springframework.data.domain.SliceImpl<>(
+                    findCardsByIdInOrder(hasNext ? ids.subList(0, pageSize) : ids), pageable, hasNext));
+        } else if (hasCategories) {
+            // Facets not built yet: filter by the first category only
+            return idPage(toCardSlice(
+                    bookRepository.findCardsByCategoryBefore(categoryIds.iterator().next(), before, pageable)));
+        }
+        return idPage(toCardSlice(bookRepository.findCardsBefore(before, pageable)));
+    }
+
+    // Id-ordered page: the cursor is the id of its last book
+    private static CatalogPage idPage(org.springframework.data.domain.Slice<BookCard> slice) {
+        List<BookCard> cards = slice.getContent();
+        return new CatalogPage(slice,
+                slice.hasNext() && !cards.isEmpty() ? String.valueOf(cards.get(cards.size() - 1).getId()) : null);
+    }
+
+    /**
+     * Index in the ranking of the first book after the cursor, -1 if it cannot be placed.
+     * The id is checked against the recorded offset; if the ranking shifted the id is
+     * looked up, and if the book left the ranking the listing resumes at the offset.
+     */
+    static int rankOffsetAfter(List<Long> rankedIds, String cursor) {
+        int separator = cursor.indexOf('.');
+        long id = parseCursorId(cursor);
+        if (separator < 0) {
+            // Plain id (bookmarked before offsets were added)
+            int index = rankedIds.indexOf(id);
+            return index < 0 ? -1 : index + 1;
+        }
+        int offset;
+        try {
+            offset = Integer.parseInt(cursor.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (offset <= 0 || offset > rankedIds.size()) {
+            return -1;
+        }
+        if (rankedIds.get(offset - 1) == id) {
+            return offset;
+        }
+        int index = rankedIds.indexOf(id);
+        return index >= 0 ? index + 1 : offset;
+    }
+
+    // Book id part of a cursor ("id" or "offset.id"); malformed cursors start from the top
+    private static long parseCursorId(String cursor) {
+        try {
+            return Long.parseLong(cursor.substring(cursor.indexOf('.') + 1).trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Per-category book counts for the catalog sidebar, within the current keyword results.
+     * In AND mode the counts are also restricted to the current selection (books that
+     * would remain after adding the category); in OR mode they are independent of it.
+     * @param rankedIds Result of findCatalogRanking(keyword)
+     * @return Map of categoryId to count, empty while the indexes are still building
+     */
+    public java.util.Map<Long, Integer> countCatalogFacets(String keyword, List<Long> rankedIds,
+            java.util.Collection<Long> categoryIds, boolean matchAll) {
+        if (!categoryFacetIndex.isReady()) {
+            return java.util.Map.of();
+        }
+        org.roaringbitmap.RoaringBitmap base = null;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            if (rankedIds == null) {
+                return java.util.Map.of();
+            }
+            base = CategoryFacetIndex.toBitmap(rankedIds);
+        }
+        if (matchAll && categoryIds != null && !categoryIds.isEmpty()) {
+            org.roaringbitmap.RoaringBitmap selection = categoryFacetIndex.match(categoryIds, true);
+            base = base == null ? selection : org.roaringbitmap.RoaringBitmap.and(base, selection);
+        }
+        return categoryFacetIndex.countByCategory(base);
+    }
+
+    /**
+     * Ranked ids from the exact index; when it finds too few books (typos, missing words)
+     * the approximate matches of the trigram index are appended after the exact hits
+     */
+    List<Long> searchIds(String keyword) {
+        List<Long> rankedIds = bookSearchIndex.search(keyword, MAX_SEARCH_RESULTS);
+        if (rankedIds.size() >= FUZZY_FALLBACK_THRESHOLD || !fuzzyTitleIndex.isReady()) {
+            return rankedIds;
+        }
+        java.util.Set<Long> merged = new java.util.LinkedHashSet<>(rankedIds);
+        merged.addAll(fuzzyTitleIndex.search(keyword, MAX_FUZZY_RESULTS));
+        return List.copyOf(merged);
     }
 
     public Optional<Book> findById(Long id) {
         return bookRepository.findById(id);
     }
 
+    /**
+     * Load book cards by id, keeping the order of the given list (e.g. search ranking).
+     * Ids of books that no longer exist are skipped.
+     */
+    public List<BookCard> findCardsByIdInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        java.util.Map<Long, BookCard> byId = new java.util.HashMap<>();
+        for (BookCard card : toCards(bookRepository.findCardsByIdIn(ids))) {
+            byId.put(card.getId(), card);
+        }
+        return ids.stream().map(byId::get).filter(java.util.Objects::nonNull).toList();
+    }
+
+    // Attach category names to card rows with one extra query for the whole page
+    private List<BookCard> toCards(List<com.example.demo.repository.BookCardView> views) {
+        if (views.isEmpty()) {
+            return List.of();
+        }
+        java.util.Map<Long, List<String>> names = new java.util.HashMap<>();
+        bookRepository.findCategoryNamesByBookIdIn(views.stream().map(com.example.demo.repository.BookCardView::getId).toList())
+                .forEach(row -> names.computeIfAbsent(row.getBookId(), id -> new java.util.ArrayList<>()).add(row.getName()));
+        return views.stream().map(view -> BookCard.from(view, names.getOrDefault(view.getId(), List.of()))).toList();
+    }
+
+    org.springframework.data.domain.Slice<BookCard> toCardSlice(
+            org.springframework.data.domain.Slice<com.example.demo.repository.BookCardView> slice) {
+        return new org.springframework.data.domain.SliceImpl<>(toCards(slice.getContent()), slice.getPageable(),
+                slice.hasNext());
+    }
+
+    private org.springframework.data.domain.Page<BookCard> toCardPage(
+            org.springframework.data.domain.Page<com.example.demo.repository.BookCardView> page) {
+        return new org.springframework.data.domain.PageImpl<>(toCards(page.getContent()), page.getPageable(),
+                page.getTotalElements());
+    }
+
     public Book save(Book book) {
-        return bookRepository.save(book);
+        // Files not persisted yet become new references to their content blob
+        List<String> newDigests = book.getFiles() == null ? List.of() : book.getFiles().stream()
+                .filter(f -> f.getId() == null && f.getContentDigest() != null)
+                .map(BookFile::getContentDigest)
+                .toList();
+        Book savedBook = bookRepository.save(book);
+        newDigests.forEach(blobStoreService::addReference);
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
+        return savedBook;
     }
 
     @Transactional
@@ -55,36 +324,50 @@ public class BookService {
             try {
                 String fileName = file.getOriginalFilename();
                 String fileType = file.getContentType();
-                Long fileSize = file.getSize();
-                String filePath = null;
                 String displayFileName = fileName;
+                String driveDownloadUrl = null;
+
+                // Stored locally first: the upload is hashed on the way and identical content is kept once
+                FileStorageService.StoredContent stored = fileStorageService.storeFile(file);
+                com.example.demo.model.StoredBlob blob = blobStoreService.register(stored,
+                        fileType != null ? fileType : "application/pdf");
+                Long fileSize = stored.getSize();
+                String filePath = blob.getLocalName();
 
                 // Check if Google Drive is available
                 boolean driveAvailable = googleDriveService.isDriveAvailable();
                 logger.info("🔍 Google Drive availability check: {}", 
                         driveAvailable ? "✅ AVAILABLE" : "❌ NOT AVAILABLE");
 
-                if (driveAvailable) {
+                if (driveAvailable && blob.getDriveFileId() != null) {
+                    // Same content already uploaded for another book: reuse the Drive file
+                    filePath = blob.getDriveFileId();
+                    driveDownloadUrl = blob.getDriveDownloadUrl();
+                    logger.info("♻️ Content already on Google Drive, upload skipped. File ID: {}", filePath);
+                } else if (driveAvailable) {
                     // Try to upload to Google Drive first
-                    try {
+                    try (java.io.InputStream in = java.nio.file.Files.newInputStream(
+                            fileStorageService.resolveExistingFile(blob.getLocalName()))) {
                         logger.info("🚀 Uploading file to Google Drive: {}", fileName);
-                        String driveFileId = googleDriveService.uploadFile(
-                                file.getInputStream(), 
+                        // Metadata comes back with the upload response, no second files().get
+                        File driveFile = googleDriveService.uploadFileWithMetadata(
+                                in, 
                                 fileName, 
                                 fileType != null ? fileType : "application/pdf"
                         );
+                        String driveFileId = driveFile.getId();
                         
                         logger.info("✅✅✅ File uploaded to Google Drive successfully! ✅✅✅");
                         logger.info("📎 Drive File ID: {}", driveFileId);
 
-                        // Get file metadata from Drive
-                        File driveFile = googleDriveService.getFileMetadata(driveFileId);
                         fileSize = driveFile.getSize() != null ? driveFile.getSize() : fileSize;
                         fileType = driveFile.getMimeType() != null ? driveFile.getMimeType() : fileType;
                         
                         // Store Drive file ID as filePath
                         filePath = driveFileId;
                         displayFileName = driveFile.getName();
+                        driveDownloadUrl = GoogleDriveService.toDownloadUrl(driveFile);
+                        blob = blobStoreService.recordDriveUpload(blob, driveFile);
                         
                         logger.info("✅ File saved to Google Drive! File ID: {}", filePath);
                     } catch (Exception driveEx) {
@@ -92,17 +375,17 @@ public class BookService {
                         logger.error("Error message: {}", driveEx.getMessage());
                         // Fallback to local storage
                         logger.warn("🔄 Falling back to local storage...");
-                        String storedFileName = fileStorageService.storeFile(file);
-                        filePath = storedFileName;
                         logger.info("✅ File saved to local storage: {}", filePath);
                     }
                 } else {
                     // Drive not available, use local storage
                     logger.warn("⚠️ Google Drive is not available, using local storage");
-                    String storedFileName = fileStorageService.storeFile(file);
-                    filePath = storedFileName;
                     logger.info("✅ File saved to local storage: {}", filePath);
                 }
+                if (BookFile.isDriveFileId(filePath)) {
+                    // Kept only on Drive, like before
+                    blobStoreService.discardLocalCopy(blob);
+                }
 
                 // Create and add BookFile
                 BookFile bookFile = new BookFile();
@@ -110,6 +393,8 @@ public class BookService {
                 bookFile.setFilePath(filePath);
                 bookFile.setFileType(fileType);
                 bookFile.setFileSize(fileSize);
+                bookFile.setDriveDownloadUrl(driveDownloadUrl);
+                bookFile.setContentDigest(stored.getDigest());
                 bookFile.setBook(book);
 
                 book.getFiles().add(bookFile);
@@ -118,10 +403,13 @@ public class BookService {
                 throw new RuntimeException("Could not process file: " + e.getMessage(), e);
             }
         }
-        return bookRepository.save(book);
+        return save(book);
     }
 
     public void deleteById(Long id) {
+        List<String> digests = bookFileRepository.findContentDigestsByBookId(id);
         bookRepository.deleteById(id);
+        blobStoreService.removeReferences(digests);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id));
     }
 }
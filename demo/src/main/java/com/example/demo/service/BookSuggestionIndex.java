@@ -0,0 +1,390 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookTitleView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory typeahead over accent-folded Book.title and author, ranked by view count.
+ * Keys live in a burst trie: small unsorted buckets at the leaves that split into
+ * trie nodes once they overflow. Every internal node caches the best suggestions of
+ * its subtree, so a prefix lookup is one walk down the prefix plus a scan of at most
+ * one bucket, and never touches the database.
+ * Changes made while a rebuild is streaming the books are recorded and replayed on the
+ * new trie before it is published.
+ */
+@Component
+public class BookSuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSuggestionIndex.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int BUCKET_CAPACITY = 32;
+    private static final int MAX_KEY_LENGTH = 48;
+    // Keys are also added from each word start, so "viet" completes "Tiếng Việt"
+    private static final int MAX_WORD_KEYS = 8;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    // Proxy of this bean, so that @Async and @Transactional apply to the periodic rebuild
+    @Lazy
+    @Autowired
+    private BookSuggestionIndex self;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    private Map<Long, Suggestion> current = new HashMap<>();
+    // Events received while a rebuild runs, null otherwise; guarded by the lock
+    private List<BookChangedEvent> pendingEvents;
+
+    /**
+     * Rebuild the trie periodically, so the ranking follows the view counts flushed by
+     * ViewCountService. The rebuild reads every book and runs on the async executor, so it
+     * does not hold the single scheduler thread the view count flush itself runs on.
+     */
+    @Scheduled(fixedDelayString = "${library.suggest.rebuild-interval-ms:600000}",
+            initialDelayString = "${library.suggest.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        self.rebuildAsync();
+    }
+
+    @Async
+    public void rebuildAsync() {
+        self.rebuild();
+    }
+
+    /**
+     * Rebuild the trie; also run once at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingEvents = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Node newRoot = new Node();
+        Map<Long, Suggestion> newCurrent = new HashMap<>();
+        try (Stream<BookTitleView> books = bookRepository.streamTitleViews()) {
+            books.forEach(book -> {
+                Suggestion suggestion = new Suggestion(book.getId(), book.getTitle(), book.getAuthor(),
+                        book.getViewCount() != null ? book.getViewCount() : 0L);
+                newCurrent.put(book.getId(), suggestion);
+                insertAll(newRoot, suggestion);
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingEvents = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            root = newRoot;
+            current = newCurrent;
+            // The stream may have missed these changes or read the rows before them
+            replayed = pendingEvents.size();
+            pendingEvents.forEach(this::apply);
+            pendingEvents = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Suggestion trie built: {} books in {} ms ({} changes replayed)", newCurrent.size(),
+                System.currentTimeMillis() - start, replayed);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.getBookId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must hold the write lock
+    private void apply(BookChangedEvent event) {
+        Suggestion previous = current.remove(event.getBookId());
+        if (previous != null) {
+            previous.live = false;
+            for (String key : keysOf(previous)) {
+                remove(root, key, previous);
+            }
+        }
+        if (!event.isDeleted()) {
+            Suggestion suggestion = new Suggestion(event.getBookId(), event.getTitle(), event.getAuthor(),
+                    event.getViewCount());
+            current.put(event.getBookId(), suggestion);
+            insertAll(root, suggestion);
+        }
+    }
+
+    /**
+     * Top completions for a typed prefix, best viewed first
+     * @param query Raw text from the search box (accents and case are ignored)
+     * @param limit Maximum number of suggestions, capped at MAX_SUGGESTIONS
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        int max = Math.min(Math.max(limit, 1), MAX_SUGGESTIONS);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = 0;
+            while (depth < prefix.length() && node.bucket == null) {
+                node = node.children.get(prefix.charAt(depth));
+                if (node == null) {
+                    return List.of();
+                }
+                depth++;
+            }
+
+            List<Suggestion> candidates;
+            if (node.bucket != null) {
+                candidates = new ArrayList<>();
+                for (Entry entry : node.bucket) {
+                    if (entry.key.startsWith(prefix)) {
+                        candidates.add(entry.suggestion);
+                    }
+                }
+                candidates.sort((a, b) -> Long.compare(b.viewCount, a.viewCount));
+            } else {
+                candidates = node.top;
+            }
+
+            List<Suggestion> result = new ArrayList<>(max);
+            Set<Long> seen = new HashSet<>();
+            for (Suggestion suggestion : candidates) {
+                if (suggestion.live && seen.add(suggestion.id)) {
+                    result.add(suggestion);
+                    if (result.size() == max) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insertAll(Node target, Suggestion suggestion) {
+        for (String key : keysOf(suggestion)) {
+            insert(target, new Entry(key, suggestion), 0);
+        }
+    }
+
+    private static Set<String> keysOf(Suggestion suggestion) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKeys(keys, suggestion.title);
+        addKeys(keys, suggestion.author);
+        return keys;
+    }
+
+    // The full folded text plus one key starting at each of the following words
+    private static void addKeys(Set<String> keys, String text) {
+        List<String> words = TextNormalizer.tokenize(text);
+        for (int i = 0; i < words.size() && i < MAX_WORD_KEYS; i++) {
+            keys.add(truncate(String.join(" ", words.subList(i, words.size()))));
+        }
+    }
+
+    private static void insert(Node node, Entry entry, int depth) {
+        while (true) {
+            if (node.bucket != null) {
+                node.bucket.add(entry);
+                if (node.bucket.size() > BUCKET_CAPACITY) {
+                    burst(node, depth);
+                }
+                return;
+            }
+            offerTop(node.top, entry.suggestion);
+            if (entry.key.length() == depth) {
+                node.terminals.add(entry);
+                return;
+            }
+            node = node.children.computeIfAbsent(entry.key.charAt(depth), c -> new Node());
+            depth++;
+        }
+    }
+
+    /**
+     * Drop a retired suggestion along the path of one of its keys. Top lists that held it are
+     * refilled from their children bottom-up, so a lookup never comes back short because
+     * retired books took the places of live ones.
+     */
+    private static void remove(Node node, String key, Suggestion retired) {
+        List<Node> path = new ArrayList<>();
+        int depth = 0;
+        while (node != null && node.bucket == null) {
+            path.add(node);
+            if (depth == key.length()) {
+                node.terminals.removeIf(entry -> entry.suggestion == retired);
+                break;
+            }
+            node = node.children.get(key.charAt(depth++));
+        }
+        if (node != null && node.bucket != null) {
+            node.bucket.removeIf(entry -> entry.suggestion == retired);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node internal = path.get(i);
+            if (internal.top.remove(retired)) {
+                refillTop(internal);
+            }
+        }
+    }
+
+    // Recompute a node's best suggestions from its terminals and its children (already up to date)
+    private static void refillTop(Node node) {
+        node.top.clear();
+        for (Entry entry : node.terminals) {
+            offerTop(node.top, entry.suggestion);
+        }
+        for (Node child : node.children.values()) {
+            if (child.bucket != null) {
+                for (Entry entry : child.bucket) {
+                    offerTop(node.top, entry.suggestion);
+                }
+            } else {
+                for (Suggestion suggestion : child.top) {
+                    offerTop(node.top, suggestion);
+                }
+            }
+        }
+    }
+
+    // Turn an overflowing bucket into a trie node and redistribute its keys one level down
+    private static void burst(Node node, int depth) {
+        List<Entry> entries = node.bucket;
+        node.bucket = null;
+        node.children = new HashMap<>();
+        node.terminals = new ArrayList<>();
+        node.top = new ArrayList<>();
+        for (Entry entry : entries) {
+            insert(node, entry, depth);
+        }
+    }
+
+    // Keep the subtree's best MAX_SUGGESTIONS books sorted by view count
+    private static void offerTop(List<Suggestion> top, Suggestion suggestion) {
+        top.removeIf(s -> !s.live);
+        for (Suggestion existing : top) {
+            if (existing == suggestion) {
+                return;
+            }
+        }
+        int position = 0;
+        while (position < top.size() && top.get(position).viewCount >= suggestion.viewCount) {
+            position++;
+        }
+        if (position < MAX_SUGGESTIONS) {
+            top.add(position, suggestion);
+            if (top.size() > MAX_SUGGESTIONS) {
+                top.remove(top.size() - 1);
+            }
+        }
+    }
+
+    private static String normalize(String query) {
+        if (query == null || query.isBlank()) {
+            return "";
+        }
+        return truncate(String.join(" ", TextNormalizer.tokenize(query)));
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    /**
+     * A node is either a leaf bucket (bucket != null) or an internal trie node
+     */
+    private static final class Node {
+        private List<Entry> bucket = new ArrayList<>();
+        private Map<Character, Node> children;
+        private List<Entry> terminals;
+        private List<Suggestion> top;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final Suggestion suggestion;
+
+        private Entry(String key, Suggestion suggestion) {
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+    }
+
+    /**
+     * One suggested book, serialized as {id, title, author} by /api/suggest
+     */
+    public static final class Suggestion {
+        private final Long id;
+        private final String title;
+        private final String author;
+        private final long viewCount;
+        // Cleared when the book is updated or deleted; read under the index lock
+        private boolean live = true;
+
+        private Suggestion(Long id, String title, String author, long viewCount) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+            this.viewCount = viewCount;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+    }
+}
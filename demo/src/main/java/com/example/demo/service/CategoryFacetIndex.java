@@ -0,0 +1,215 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookCategoryLink;
+import com.example.demo.repository.BookRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory copy of the book_category join table as one compressed bitmap
+ * of book ids per category. Catalog filters (several categories, AND / OR)
+ * and the per-category facet counts are computed by bitmap intersection
+ * instead of SQL joins.
+ * Book ids are stored as ints, which covers any IDENTITY range the library will reach.
+ */
+@Component
+public class CategoryFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryFacetIndex.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, RoaringBitmap> booksByCategory = new HashMap<>();
+    // Reverse mapping so an updated book can be removed from its old categories
+    private final Map<Long, Set<Long>> categoriesByBook = new HashMap<>();
+    private volatile boolean ready = false;
+
+    // Built before the other startup jobs, SimilarBooksIndex reads the category sets
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try (Stream<BookCategoryLink> links = bookRepository.streamCategoryLinks()) {
+            booksByCategory.clear();
+            categoriesByBook.clear();
+            links.forEach(link -> {
+                Set<Long> categories = categoriesByBook.computeIfAbsent(link.getBookId(), id -> new HashSet<>());
+                if (link.getCategoryId() != null) {
+                    categories.add(link.getCategoryId());
+                    booksByCategory.computeIfAbsent(link.getCategoryId(), id -> new RoaringBitmap())
+                            .add(toInt(link.getBookId()));
+                }
+            });
+            booksByCategory.values().forEach(RoaringBitmap::runOptimize);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Category facets built: {} books, {} categories in {} ms",
+                categoriesByBook.size(), booksByCategory.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.getBookId() == null) {
+            return;
+        }
+        int bookId = toInt(event.getBookId());
+        lock.writeLock().lock();
+        try {
+            Set<Long> previous = categoriesByBook.remove(event.getBookId());
+            if (previous != null) {
+                for (Long categoryId : previous) {
+                    RoaringBitmap books = booksByCategory.get(categoryId);
+                    if (books != null) {
+                        books.remove(bookId);
+                    }
+                }
+            }
+
+            if (!event.isDeleted()) {
+                categoriesByBook.put(event.getBookId(), new HashSet<>(event.getCategoryIds()));
+                for (Long categoryId : event.getCategoryIds()) {
+                    booksByCategory.computeIfAbsent(categoryId, id -> new RoaringBitmap()).add(bookId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ids of every indexed book
+     */
+    public List<Long> bookIds() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(categoriesByBook.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Categories of one book, empty for unknown books
+     */
+    public long[] categoriesOf(Long bookId) {
+        lock.readLock().lock();
+        try {
+            Set<Long> categories = categoriesByBook.get(bookId);
+            return categories == null ? new long[0]
+                    : categories.stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Books in the selected categories
+     * @param categoryIds Selected categories
+     * @param matchAll true = book must be in every category (AND), false = in any of them (OR)
+     * @return New bitmap owned by the caller
+     */
+    public RoaringBitmap match(Collection<Long> categoryIds, boolean matchAll) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = null;
+            for (Long categoryId : categoryIds) {
+                RoaringBitmap books = booksByCategory.getOrDefault(categoryId, new RoaringBitmap());
+                if (result == null) {
+                    result = books.clone();
+                } else if (matchAll) {
+                    result.and(books);
+                } else {
+                    result.or(books);
+                }
+            }
+            return result != null ? result : new RoaringBitmap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of books of each category inside the given set
+     * @param base Books to count within, or null for the whole library
+     * @return Map of categoryId to count, for every known category
+     */
+    public Map<Long, Integer> countByCategory(RoaringBitmap base) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> counts = new HashMap<>();
+            for (Map.Entry<Long, RoaringBitmap> entry : booksByCategory.entrySet()) {
+                counts.put(entry.getKey(), base == null
+                        ? entry.getValue().getCardinality()
+                        : RoaringBitmap.andCardinality(base, entry.getValue()));
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset page over a bitmap: the largest ids below the cursor, newest first
+     * @param ids Matching books
+     * @param cursor Id of the last book already shown, or null for the first page
+     * @param limit Maximum number of ids to return
+     */
+    public static List<Long> pageDescending(RoaringBitmap ids, Long cursor, int limit) {
+        // rankLong(x) = number of ids <= x, so select(remaining - 1) is the largest id below the cursor
+        long remaining;
+        if (cursor == null || cursor > Integer.MAX_VALUE) {
+            remaining = ids.getLongCardinality();
+        } else {
+            remaining = cursor <= 0 ? 0 : ids.rankLong((int) (cursor - 1));
+        }
+        List<Long> page = new ArrayList<>(limit);
+        for (long i = remaining - 1; i >= 0 && page.size() < limit; i--) {
+            page.add(Integer.toUnsignedLong(ids.select((int) i)));
+        }
+        return page;
+    }
+
+    public static RoaringBitmap toBitmap(Collection<Long> ids) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (Long id : ids) {
+            bitmap.add(toInt(id));
+        }
+        return bitmap;
+    }
+
+    public static boolean contains(RoaringBitmap ids, Long id) {
+        return id != null && ids.contains(toInt(id));
+    }
+
+    private static int toInt(long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -2,20 +2,85 @@ package com.example.demo.service;
 
 import com.example.demo.model.Category;
 import com.example.demo.repository.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class CategoryService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CategoryService.class);
+
     @Autowired
     private CategoryRepository categoryRepository;
 
+    // Read-mostly snapshot of all categories (header dropdown, sidebars, admin forms).
+    // The list is immutable and swapped atomically; bumping the version invalidates it.
+    private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
     public List<Category> findAll() {
-        return categoryRepository.findAll();
+        CategorySnapshot current = snapshot.get();
+        long currentVersion = version.get();
+        if (current != null && current.version == currentVersion) {
+            cacheHits.increment();
+            return current.categories;
+        }
+
+        cacheMisses.increment();
+        List<Category> categories = List.copyOf(categoryRepository.findAll());
+        // Tagged with the version read before loading: if an invalidation raced with
+        // the load, the snapshot is already stale and will simply never be served
+        snapshot.set(new CategorySnapshot(currentVersion, categories));
+        return categories;
+    }
+
+    /**
+     * Drop the cached category list; the next findAll() reloads it
+     */
+    public void invalidateCache() {
+        version.incrementAndGet();
+        // Inside a transaction (e.g. the crawler) another request could reload the old rows
+        // before commit, so invalidate once more after the commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Version of the category list, bumped on every change (useful as a cache key)
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
     }
 
     public org.springframework.data.domain.Page<Category> findAll(org.springframework.data.domain.Pageable pageable) {
@@ -33,11 +98,61 @@ public class CategoryService {
         return categoryRepository.findById(id);
     }
 
+    public Optional<Category> findByName(String name) {
+        return categoryRepository.findByName(name);
+    }
+
     public Category save(Category category) {
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        invalidateCache();
+        return savedCategory;
     }
 
     public void deleteById(Long id) {
         categoryRepository.deleteById(id);
+        invalidateCache();
+    }
+
+    /**
+     * Count books per category with a single grouped query
+     * @param categoryIds Categories to count (e.g. the current admin page)
+     * @return Map of categoryId to book count, 0 for categories without books
+     */
+    public Map<Long, Long> countBooks(Collection<Long> categoryIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (categoryIds == null || categoryIds.isEmpty()) {
+            return counts;
+        }
+        for (Long categoryId : categoryIds) {
+            counts.put(categoryId, 0L);
+        }
+        categoryRepository.countBooksByCategoryIds(categoryIds)
+                .forEach(row -> counts.put(row.getCategoryId(), row.getBookCount()));
+        return counts;
+    }
+
+    /**
+     * Delete all categories that no book references, in one statement.
+     * Scheduled instead of running inside admin GET requests.
+     */
+    @Scheduled(cron = "${library.categories.prune-cron:0 0 * * * *}")
+    @Transactional
+    public int pruneEmptyCategories() {
+        int deleted = categoryRepository.deleteEmptyCategories();
+        if (deleted > 0) {
+            invalidateCache();
+            logger.info("Deleted {} empty categories", deleted);
+        }
+        return deleted;
+    }
+
+    private static final class CategorySnapshot {
+        private final long version;
+        private final List<Category> categories;
+
+        private CategorySnapshot(long version, List<Category> categories) {
+            this.version = version;
+            this.categories = categories;
+        }
     }
 }
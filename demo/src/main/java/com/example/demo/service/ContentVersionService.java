@@ -0,0 +1,56 @@
+package com.example.demo.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content versions used as HTTP validators (ETag) for the public pages.
+ * A book's version is bumped whenever the book, its files or its reviews change;
+ * the catalog version is bumped by any of those changes. Versions live in memory,
+ * so they are prefixed with an epoch that changes on every restart.
+ */
+@Service
+public class ContentVersionService {
+
+    // Validators issued by a previous process never match after a restart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, AtomicLong> bookVersions = new ConcurrentHashMap<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    /**
+     * Saves go through BookService (admin form, uploads, crawler), so this covers files too
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        bumpBook(event.getBookId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        bumpBook(event.getBookId());
+    }
+
+    public void bumpBook(Long bookId) {
+        if (bookId != null) {
+            bookVersions.computeIfAbsent(bookId, id -> new AtomicLong()).incrementAndGet();
+        }
+        catalogVersion.incrementAndGet();
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getBookVersion(Long bookId) {
+        AtomicLong version = bookVersions.get(bookId);
+        return version != null ? version.get() : 0L;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+}
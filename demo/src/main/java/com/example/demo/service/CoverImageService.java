@@ -0,0 +1,258 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Local copies of the (remote) book covers, resized to a few fixed widths.
+ * The original is downloaded once per image URL and every thumbnail is generated from
+ * it; both live in a DiskLruCache. Cover URLs carry a version derived from
+ * Book.imageUrl, so a cached thumbnail never changes for a given URL and browsers can
+ * keep it forever.
+ */
+@Service
+public class CoverImageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverImageService.class);
+
+    /** Thumbnail widths served by /covers/{bookId}/{size}; anything else is rejected */
+    public static final Set<Integer> WIDTHS = Set.of(160, 320, 640);
+    public static final int CARD_WIDTH = 320;
+    public static final int DETAIL_WIDTH = 640;
+    private static final int MAX_ORIGINAL_BYTES = 10 * 1024 * 1024;
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${library.covers.cache-dir:uploads/.covers}")
+    private String cacheDir;
+
+    @Value("${library.covers.max-bytes:536870912}")
+    private long maxBytes;
+
+    private DiskLruCache cache;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    @PostConstruct
+    public void init() throws IOException {
+        cache = new DiskLruCache(Paths.get(cacheDir), maxBytes);
+    }
+
+    // Keep the LRU order across restarts
+    @PreDestroy
+    public void close() {
+        cache.close();
+    }
+
+    /**
+     * URL of a cover thumbnail, or null when the book has no image.
+     * Local images (e.g. /images/...) are already served by us and are returned as is.
+     */
+    public static String coverUrl(Long bookId, String imageUrl, int width) {
+        if (bookId == null || imageUrl == null || imageUrl.isBlank()) {
+            return null;
+        }
+        if (!isRemote(imageUrl)) {
+            return imageUrl.trim();
+        }
+        return "/covers/" + bookId + "/" + width + "?v=" + versionOf(imageUrl);
+    }
+
+    public static boolean isRemote(String imageUrl) {
+        String url = imageUrl.trim();
+        return url.regionMatches(true, 0, "http://", 0, 7) || url.regionMatches(true, 0, "https://", 0, 8);
+    }
+
+    /**
+     * Short hash of the image URL, part of every cache key and cover URL
+     */
+    public static String versionOf(String imageUrl) {
+        return Integer.toHexString(imageUrl.trim().hashCode());
+    }
+
+    /**
+     * Cached thumbnail for a version, without touching the database; null on a miss
+     */
+    public Path findCached(Long bookId, int width, String version) {
+        return version != null && version.matches("[0-9a-f]{1,8}")
+                ? cache.get(thumbnailKey(bookId, width, version)) : null;
+    }
+
+    /**
+     * Current cover image URL of a book, null if none
+     */
+    public String getImageUrl(Long bookId) {
+        return bookRepository.findById(bookId).map(Book::getImageUrl).orElse(null);
+    }
+
+    /**
+     * Warm the cache for a newly saved book (called by the crawler)
+     */
+    @Async
+    public void prefetch(Long bookId, String imageUrl) {
+        if (bookId == null || imageUrl == null || !isRemote(imageUrl)) {
+            return;
+        }
+        try {
+            getThumbnail(bookId, imageUrl.trim(), CARD_WIDTH);
+            getThumbnail(bookId, imageUrl.trim(), DETAIL_WIDTH);
+            logger.debug("Cover prefetched for book {}", bookId);
+        } catch (IOException e) {
+            logger.warn("⚠️ Cover prefetch failed for book {}: {}", bookId, e.getMessage());
+        }
+    }
+
+    public int getCachedFiles() {
+        return cache.size();
+    }
+
+    public long getCachedBytes() {
+        return cache.getUsedBytes();
+    }
+
+    /**
+     * Thumbnail of a cover image, downloading and resizing it if needed
+     * @throws IOException if the original cannot be downloaded or decoded
+     */
+    public Path getThumbnail(Long bookId, String imageUrl, int width) throws IOException {
+        if (!WIDTHS.contains(width)) {
+            throw new IllegalArgumentException("Unsupported cover width: " + width);
+        }
+        String version = versionOf(imageUrl);
+        String key = thumbnailKey(bookId, width, version);
+        return cache.getOrLoad(key, out -> {
+            Path original = getOriginal(bookId, imageUrl, version);
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                throw new IOException("Unsupported image format: " + imageUrl);
+            }
+            writeJpeg(resize(source, width), out);
+        });
+    }
+
+    private Path getOriginal(Long bookId, String imageUrl, String version) throws IOException {
+        return cache.getOrLoad(bookId + "-orig-" + version, out -> out.write(download(imageUrl)));
+    }
+
+    private byte[] download(String imageUrl) throws IOException {
+        if (!isRemote(imageUrl)) {
+            throw new IOException("Not an http(s) image URL: " + imageUrl);
+        }
+        URI uri = URI.create(imageUrl);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "image/*")
+                .GET()
+                .build();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("HTTP " + response.statusCode() + " for " + imageUrl);
+                }
+                byte[] bytes = body.readNBytes(MAX_ORIGINAL_BYTES + 1);
+                if (bytes.length > MAX_ORIGINAL_BYTES) {
+                    throw new IOException("Cover image too large: " + imageUrl);
+                }
+                return bytes;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading " + imageUrl, e);
+        }
+    }
+
+    // Halve the image until close to the target, then one bilinear pass: cheap and without aliasing
+    static BufferedImage resize(BufferedImage source, int width) {
+        BufferedImage current = toRgb(source);
+        if (current.getWidth() <= width) {
+            return current;
+        }
+        while (current.getWidth() / 2 >= width) {
+            current = scale(current, current.getWidth() / 2);
+        }
+        return scale(current, width);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // JPEG has no alpha channel: flatten onto white
+    private static BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(java.awt.Color.WHITE);
+            g.fillRect(0, 0, source.getWidth(), source.getHeight());
+            g.drawImage(source, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String thumbnailKey(Long bookId, int width, String version) {
+        return bookId + "-" + width + "-" + version + ".jpg";
+    }
+}
@@ -20,7 +20,6 @@ import com.example.demo.model.Book;
 import com.example.demo.model.BookFile;
 import com.example.demo.model.Category;
 import com.example.demo.repository.BookRepository;
-import com.example.demo.repository.CategoryRepository;
 import com.google.api.services.drive.model.File;
 
 @Service
@@ -34,14 +33,23 @@ public class CrawlerService {
     private BookRepository bookRepository;
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private CategoryService categoryService;
 
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private BlobStoreService blobStoreService;
+
     @Autowired
     private GoogleDriveService googleDriveService;
 
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CoverImageService coverImageService;
+
     /**
      * Crawl books from a specific URL
      */
@@ -950,11 +958,11 @@ public class CrawlerService {
             if (info.getCategories() != null && !info.getCategories().isEmpty()) {
                 for (String categoryName : info.getCategories()) {
                     if (categoryName != null && !categoryName.trim().isEmpty() && categoryName.length() < 100) {
-                        Category category = categoryRepository.findByName(categoryName.trim())
+                        Category category = categoryService.findByName(categoryName.trim())
                                 .orElseGet(() -> {
                                     Category newCategory = new Category();
                                     newCategory.setName(categoryName.trim());
-                                    return categoryRepository.save(newCategory);
+                                    return categoryService.save(newCategory);
                                 });
                         categories.add(category);
                     }
@@ -963,11 +971,11 @@ public class CrawlerService {
 
             // If no categories found, create or use a default category
             if (categories.isEmpty()) {
-                Category defaultCategory = categoryRepository.findByName("Chưa phân loại")
+                Category defaultCategory = categoryService.findByName("Chưa phân loại")
                         .orElseGet(() -> {
                             Category newCategory = new Category();
                             newCategory.setName("Chưa phân loại");
-                            return categoryRepository.save(newCategory);
+                            return categoryService.save(newCategory);
                         });
                 categories.add(defaultCategory);
             }
@@ -992,47 +1000,69 @@ public class CrawlerService {
                     String fileType = "application/pdf";
                     Long fileSize = 0L;
                     String localFilePath = null;
+                    String driveDownloadUrl = null;
+                    String originalFileName = fileName;
+                    String contentDigest = null;
+                    com.example.demo.model.StoredBlob blob = null;
 
                     // STEP 1: ALWAYS download file to uploads folder first
                     logger.info("📥 Step 1: Downloading file to uploads folder...");
                     try {
-                        localFilePath = fileStorageService.downloadFileFromUrl(info.getDownloadUrl(), fileName);
-                        logger.info("✅✅✅ File downloaded to LOCAL STORAGE: {}", localFilePath);
-                        fileSize = fileStorageService.getFileSize(localFilePath);
+                        // Content addressed: the same file crawled from another page is stored once
+                        FileStorageService.StoredContent stored = fileStorageService.downloadFileFromUrl(
+                                info.getDownloadUrl(), fileName);
+                        fileSize = stored.getSize();
                         logger.info("📊 File size: {} bytes ({} MB)", fileSize, fileSize / 1024.0 / 1024.0);
                         
                         // Validate file size
                         if (fileSize < 10240) {
                             logger.error("❌ Downloaded file is too small ({} bytes), likely not a valid file.", fileSize);
-                            fileStorageService.deleteFile(localFilePath);
+                            if (stored.isCreated()) {
+                                fileStorageService.deleteFile(stored.getFileName());
+                            }
                             throw new IOException("Downloaded file is too small (" + fileSize + " bytes).");
                         }
+
+                        blob = blobStoreService.register(stored, detectFileType(stored.getFileName()));
+                        localFilePath = blob.getLocalName();
+                        originalFileName = stored.getOriginalFileName();
+                        contentDigest = stored.getDigest();
+                        logger.info("✅✅✅ File downloaded to LOCAL STORAGE: {}", localFilePath);
                     } catch (Exception downloadEx) {
                         logger.error("❌ Failed to download file to uploads: {}", downloadEx.getMessage(), downloadEx);
                         throw new IOException("Could not download file: " + downloadEx.getMessage(), downloadEx);
                     }
 
-                    if (driveAvailable) {
+                    if (driveAvailable && blob.getDriveFileId() != null) {
+                        // STEP 2 skipped: the same content was uploaded before, reuse that Drive file
+                        filePath = blob.getDriveFileId();
+                        driveDownloadUrl = blob.getDriveDownloadUrl();
+                        fileType = blob.getContentType() != null ? blob.getContentType() : "application/pdf";
+                        displayFileName = originalFileName;
+                        if (fileName != null && !fileName.isEmpty() && fileName.length() > 3
+                                && !fileName.equals("download.pdf")) {
+                            displayFileName = fileName;
+                        }
+                        logger.info("♻️ Step 2: Content already on Google Drive, upload skipped. File ID: {}", filePath);
+
+                        if (!downloadFile) {
+                            blobStoreService.discardLocalCopy(blob);
+                        }
+                    } else if (driveAvailable) {
                         // STEP 2: Upload file from uploads to Google Drive
                         logger.info("🚀 Step 2: Uploading file from uploads to Google Drive...");
                         try {
                             java.io.File localFile = fileStorageService.getFileStorageLocation().resolve(localFilePath).toFile();
                             try (java.io.FileInputStream fileInputStream = new java.io.FileInputStream(localFile)) {
-                                // Extract display filename from localFilePath (remove UUID prefix)
-                                String displayName = fileName;
-                                if (localFilePath.contains("_") && localFilePath.length() > 40) {
-                                    int underscoreIndex = localFilePath.indexOf('_');
-                                    if (underscoreIndex > 0) {
-                                        displayName = localFilePath.substring(underscoreIndex + 1);
-                                    }
-                                }
+                                // Stored names are digests, the Drive file gets the original name
+                                String displayName = originalFileName;
                                 
-                                String driveFileId = googleDriveService.uploadFile(fileInputStream, displayName, fileType);
+                                // Metadata comes back with the upload response, no second files().get
+                                File driveFile = googleDriveService.uploadFileWithMetadata(fileInputStream, displayName, fileType);
+                                String driveFileId = driveFile.getId();
                                 logger.info("✅✅✅ File uploaded to Google Drive successfully! ✅✅✅");
                                 logger.info("📎 Drive File ID: {}", driveFileId);
 
-                                // Get file metadata from Drive
-                                File driveFile = googleDriveService.getFileMetadata(driveFileId);
                                 fileSize = driveFile.getSize() != null ? driveFile.getSize() : fileSize;
                                 logger.info("📊 File size: {} bytes ({} MB)", fileSize, fileSize / 1024.0 / 1024.0);
 
@@ -1058,6 +1088,8 @@ public class CrawlerService {
                                 }
                                 filePath = driveFileId; // Store Drive file ID in database
                                 fileType = driveFile.getMimeType() != null ? driveFile.getMimeType() : "application/pdf";
+                                driveDownloadUrl = GoogleDriveService.toDownloadUrl(driveFile);
+                                blob = blobStoreService.recordDriveUpload(blob, driveFile);
 
                                 logger.info("✅✅✅ File saved to Google Drive! ✅✅✅");
                                 logger.info("🆔 Drive File ID (stored in database): {}", filePath);
@@ -1069,12 +1101,9 @@ public class CrawlerService {
                                 if (!downloadFile) {
                                     logger.info("🗑️ Step 3: Checkbox NOT checked - File uploaded to Drive successfully, now deleting from uploads...");
                                     logger.info("⏳ Waiting for upload confirmation before deleting local file...");
-                                    boolean deleted = fileStorageService.deleteFile(localFilePath);
-                                    if (deleted) {
-                                        logger.info("✅✅✅ File deleted from uploads folder (kept only on Drive) ✅✅✅");
-                                    } else {
-                                        logger.warn("⚠️ Failed to delete file from uploads: {}", localFilePath);
-                                    }
+                                    // Only removed if no other book serves the same content from uploads
+                                    blobStoreService.discardLocalCopy(blob);
+                                    logger.info("✅✅✅ File released from uploads folder (kept only on Drive) ✅✅✅");
                                 } else {
                                     logger.info("✅ Step 3: Checkbox checked - File kept in uploads folder");
                                     logger.info("📁 Local file path: {}", localFilePath);
@@ -1096,19 +1125,13 @@ public class CrawlerService {
                             if (fileSize < 10240) {
                                 logger.error("❌ Downloaded file is too small ({} bytes), likely not a valid file.",
                                         fileSize);
-                                // Delete invalid file
-                                fileStorageService.deleteFile(localFilePath);
+                                // Release the invalid file (deleted by the nightly blob repair)
+                                blobStoreService.discardLocalCopy(blob);
                                 throw new IOException("Downloaded file is too small (" + fileSize + " bytes).");
                             }
 
-                            // Determine actual filename from saved filename
-                            displayFileName = localFilePath;
-                            if (localFilePath.contains("_") && localFilePath.length() > 40) {
-                                int underscoreIndex = localFilePath.indexOf('_');
-                                if (underscoreIndex > 0) {
-                                    displayFileName = localFilePath.substring(underscoreIndex + 1);
-                                }
-                            }
+                            // Saved filename is the content digest, show the original name
+                            displayFileName = originalFileName;
 
                             if (fileName != null && !fileName.isEmpty() && fileName.length() > 3
                                     && !fileName.equals("download.pdf")) {
@@ -1117,6 +1140,7 @@ public class CrawlerService {
 
                             filePath = localFilePath; // Use local path in database
                             fileType = detectFileType(localFilePath);
+                            driveDownloadUrl = null;
 
                             logger.info("💾 File saved to LOCAL STORAGE (Drive upload failed, using local file)");
                             logger.info("📁 Local path: {}", filePath);
@@ -1130,14 +1154,8 @@ public class CrawlerService {
                             // Checkbox is checked - keep file in uploads
                             logger.info("✅ Checkbox checked - File kept in uploads folder");
                             
-                            // Determine actual filename from saved filename
-                            displayFileName = localFilePath;
-                            if (localFilePath.contains("_") && localFilePath.length() > 40) {
-                                int underscoreIndex = localFilePath.indexOf('_');
-                                if (underscoreIndex > 0) {
-                                    displayFileName = localFilePath.substring(underscoreIndex + 1);
-                                }
-                            }
+                            // Saved filename is the content digest, show the original name
+                            displayFileName = originalFileName;
 
                             if (fileName != null && !fileName.isEmpty() && fileName.length() > 3
                                     && !fileName.equals("download.pdf")) {
@@ -1153,10 +1171,8 @@ public class CrawlerService {
                         } else {
                             // Drive not available AND checkbox not checked - delete file and skip
                             logger.warn("⚠️⚠️⚠️ Google Drive not available and checkbox NOT checked - Deleting file from uploads...");
-                            boolean deleted = fileStorageService.deleteFile(localFilePath);
-                            if (deleted) {
-                                logger.info("✅ File deleted from uploads folder");
-                            }
+                            blobStoreService.discardLocalCopy(blob);
+                            logger.info("✅ File released from uploads folder");
                             logger.warn("⚠️⚠️⚠️ This book will be saved WITHOUT the file attachment.");
                             filePath = null;
                         }
@@ -1169,6 +1185,8 @@ public class CrawlerService {
                         bookFile.setFilePath(filePath);
                         bookFile.setFileType(fileType);
                         bookFile.setFileSize(fileSize);
+                        bookFile.setDriveDownloadUrl(driveDownloadUrl);
+                        bookFile.setContentDigest(contentDigest);
                         bookFile.setBook(book);
 
                         book.getFiles().add(bookFile);
@@ -1181,8 +1199,10 @@ public class CrawlerService {
                 }
             }
 
-            Book savedBook = bookRepository.save(book);
+            Book savedBook = bookService.save(book);
             logger.info("SUCCESS: Book saved to database with ID: {}", savedBook.getId());
+            // Download and resize the cover in the background so the first catalog view is served locally
+            coverImageService.prefetch(savedBook.getId(), savedBook.getImageUrl());
             return savedBook;
 
         } catch (Exception e) {
@@ -0,0 +1,273 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Files cached on local disk, evicted least recently used first once their total size
+ * exceeds maxBytes. Files are spread over 256 shard directories (first byte of a hash of
+ * the key) so no directory grows too large. Entries are written to a temp file and moved
+ * into place atomically, so a reader never sees a partial file.
+ * Recency is kept in memory and saved by {@link #close()} to a small index file listing the
+ * keys in access order, which is how the order is restored when the cache is reopened. File
+ * times are not used for recency: access times are not updated on noatime/relatime mounts,
+ * and the modification time is left alone because callers use it in validators.
+ * Not a Spring bean: each user owns its own instance and closes it on shutdown.
+ */
+public class DiskLruCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final Pattern SAFE_KEY = Pattern.compile("[A-Za-z0-9._-]{1,200}");
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Keys, least recently used first; kept next to the shard directories, so never mistaken for an entry
+    private static final String INDEX_FILE = ".lru-index";
+
+    private final Path directory;
+    private final long maxBytes;
+    // Access-ordered: key -> file size
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedBytes = 0;
+    // One load per key at a time; concurrent misses wait for the same result
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Receives the stream of a new entry
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    public DiskLruCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+        load();
+    }
+
+    /**
+     * Cached file for the key, or null on a miss
+     */
+    public Path get(String key) {
+        Path file = fileFor(key);
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        if (!Files.exists(file)) {
+            // Deleted behind our back
+            remove(key);
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Read-through lookup: the cached file, or a new entry written by the writer on a miss.
+     * Concurrent misses on the same key run the writer once.
+     */
+    public Path getOrLoad(String key, Writer writer) throws IOException {
+        Path cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> running = loading.putIfAbsent(key, future);
+        if (running == null) {
+            try {
+                // Another thread may have finished loading between get() and putIfAbsent()
+                Path loaded = get(key);
+                future.complete(loaded != null ? loaded : put(key, writer));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                loading.remove(key, future);
+            }
+            running = future;
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Write a new entry (replacing any previous one) and evict old entries if needed
+     * @return The cached file
+     */
+    public Path put(String key, Writer writer) throws IOException {
+        Path file = fileFor(key);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), key, TEMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        long size = Files.size(file);
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = entries.put(key, size);
+            usedBytes += size - (previous != null ? previous : 0L);
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    continue;
+                }
+                usedBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String evictedKey : evicted) {
+            deleteQuietly(fileFor(evictedKey));
+        }
+        return file;
+    }
+
+    public void remove(String key) {
+        synchronized (this) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                usedBytes -= size;
+            }
+        }
+        deleteQuietly(fileFor(key));
+    }
+
+    /**
+     * Save the access order for the next start. Entries written after the last save are
+     * ordered by modification time when the cache is reopened.
+     */
+    public void close() {
+        List<String> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(entries.keySet());
+        }
+        Path index = directory.resolve(INDEX_FILE);
+        try {
+            Path temp = Files.createTempFile(directory, INDEX_FILE, TEMP_SUFFIX);
+            try {
+                Files.write(temp, keys);
+                Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // Recency on disk is only a hint for the next start
+            logger.warn("Failed to save cache index {}: {}", index, e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Path fileFor(String key) {
+        if (!SAFE_KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid cache key: " + key);
+        }
+        return directory.resolve(shardOf(key)).resolve(key);
+    }
+
+    static String shardOf(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return String.format("%02x", h >>> 24);
+    }
+
+    // Rebuild the index from disk in the saved access order, so the LRU order survives restarts
+    private void load() throws IOException {
+        Path index = directory.resolve(INDEX_FILE);
+        Map<String, Integer> savedOrder = new HashMap<>();
+        if (Files.isRegularFile(index)) {
+            try {
+                for (String key : Files.readAllLines(index)) {
+                    savedOrder.putIfAbsent(key, savedOrder.size());
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring cache index {}: {}", index, e.getMessage());
+            }
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory, 2)) {
+            files = walk.filter(Files::isRegularFile).filter(file -> !file.equals(index)).toList();
+        }
+        List<Object[]> found = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                if (name.endsWith(TEMP_SUFFIX) || !SAFE_KEY.matcher(name).matches()
+                        || !file.getParent().getFileName().toString().equals(shardOf(name))) {
+                    // Leftover of an interrupted write, or not ours
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                // Files missing from the index were written after it was saved: they come last, oldest first
+                Integer position = savedOrder.get(name);
+                long rank = position != null ? position : savedOrder.size() + attributes.lastModifiedTime().toMillis();
+                found.add(new Object[] { name, attributes.size(), rank });
+            } catch (IOException e) {
+                logger.warn("Skipping cache file {}: {}", file, e.getMessage());
+            }
+        }
+        found.sort(Comparator.comparingLong(entry -> (Long) entry[2]));
+        for (Object[] entry : found) {
+            entries.put((String) entry[0], (Long) entry[1]);
+            usedBytes += (Long) entry[1];
+        }
+        logger.info("Disk cache {} opened: {} files, {} bytes", directory, entries.size(), usedBytes);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete cache file {}: {}", file, e.getMessage());
+        }
+    }
+}
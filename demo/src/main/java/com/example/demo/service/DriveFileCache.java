@@ -0,0 +1,109 @@
+package com.example.demo.service;
+
+import com.example.demo.model.BookFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+
+/**
+ * Optional proxy mode for Drive-hosted book files (library.drive.proxy-enabled).
+ * The first download of a file streams it from Drive into a local DiskLruCache;
+ * later downloads are served from local disk like any uploaded file, without a round
+ * trip to Google or any Drive quota. Only files of known size up to a quarter of the cache
+ * are proxied, and a download that turns out larger is aborted.
+ */
+@Service
+public class DriveFileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveFileCache.class);
+
+    @Autowired
+    private GoogleDriveService googleDriveService;
+
+    @Value("${library.drive.proxy-enabled:false}")
+    private boolean enabled;
+
+    @Value("${library.drive.cache-dir:uploads/.drive-cache}")
+    private String cacheDir;
+
+    @Value("${library.drive.cache-max-bytes:10737418240}")
+    private long maxBytes;
+
+    private DiskLruCache cache;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (enabled) {
+            cache = new DiskLruCache(Paths.get(cacheDir), maxBytes);
+        }
+    }
+
+    // Keep the LRU order across restarts
+    @PreDestroy
+    public void close() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    /**
+     * Whether this file should be served through the local cache instead of a redirect.
+     * The first download blocks the request until the whole file is local, so files of
+     * unknown size are redirected.
+     */
+    public boolean isProxied(BookFile bookFile) {
+        return enabled && bookFile.isDriveFile()
+                && bookFile.getFileSize() != null && bookFile.getFileSize() <= maxFileBytes();
+    }
+
+    private long maxFileBytes() {
+        return maxBytes / 4;
+    }
+
+    /**
+     * Local copy of a Drive file, downloaded on the first request
+     * @throws IOException if Drive is unavailable or the download fails (nothing is cached then)
+     */
+    public Path getLocalCopy(BookFile bookFile) throws IOException {
+        String fileId = bookFile.getFilePath();
+        return cache.getOrLoad(fileId, out -> {
+            long start = System.currentTimeMillis();
+            try (InputStream in = googleDriveService.downloadFile(fileId)) {
+                // The stored size may be wrong: stop once the copy exceeds what may be proxied
+                long limit = maxFileBytes();
+                byte[] buffer = new byte[64 * 1024];
+                long bytes = 0;
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    bytes += read;
+                    if (bytes > limit) {
+                        throw new IOException("Drive file " + fileId + " is larger than " + limit + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
+                logger.info("📥 Drive file {} cached locally: {} bytes in {} ms",
+                        fileId, bytes, System.currentTimeMillis() - start);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Google Drive is not available: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    public int getCachedFiles() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    public long getCachedBytes() {
+        return cache != null ? cache.getUsedBytes() : 0L;
+    }
+}
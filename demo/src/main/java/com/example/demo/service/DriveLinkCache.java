@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import com.example.demo.model.BookFile;
+import com.example.demo.repository.BookFileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Download links of Drive files without a Drive API call per download.
+ * Links saved on BookFile (at upload time or by an earlier lookup) are used while they are
+ * younger than the TTL. Older or missing links are looked up again, kept in a TTL cache so
+ * concurrent downloads share one lookup, and written back to the BookFile row with the time
+ * they were fetched. If Drive cannot be reached a stale stored link is still used.
+ */
+@Service
+public class DriveLinkCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveLinkCache.class);
+
+    @Autowired
+    private GoogleDriveService googleDriveService;
+
+    @Autowired
+    private BookFileRepository bookFileRepository;
+
+    @Value("${library.drive.link-ttl-minutes:360}")
+    private long ttlMinutes;
+
+    private final Map<String, CachedLink> links = new ConcurrentHashMap<>();
+
+    /**
+     * Direct download URL of a Drive-backed BookFile
+     */
+    public String getDownloadUrl(BookFile bookFile) throws IOException, GeneralSecurityException {
+        String stored = bookFile.getDriveDownloadUrl();
+        LocalDateTime fetchedAt = bookFile.getDriveLinkFetchedAt();
+        if (stored != null && fetchedAt != null && fetchedAt.isAfter(LocalDateTime.now().minusMinutes(ttlMinutes))) {
+            return stored;
+        }
+        String fileId = bookFile.getFilePath();
+        long now = System.currentTimeMillis();
+        CachedLink cached = links.get(fileId);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.url;
+        }
+
+        String url;
+        try {
+            url = googleDriveService.getDownloadUrl(fileId);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            if (stored == null) {
+                throw e;
+            }
+            logger.warn("⚠️ Could not refresh Drive link of file {}, using the stored one: {}",
+                    bookFile.getId(), e.getMessage());
+            return stored;
+        }
+        // Expired entries are dropped whenever a new one is added; there is one per file at most
+        links.values().removeIf(link -> link.expiresAt <= now);
+        links.put(fileId, new CachedLink(url, now + ttlMinutes * 60_000));
+        bookFileRepository.updateDriveDownloadUrl(bookFile.getId(), url, LocalDateTime.now());
+        logger.info("🔗 Drive link of file {} {} and saved", bookFile.getId(), stored == null ? "cached" : "refreshed");
+        return url;
+    }
+
+    private static final class CachedLink {
+        private final String url;
+        private final long expiresAt;
+
+        private CachedLink(String url, long expiresAt) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
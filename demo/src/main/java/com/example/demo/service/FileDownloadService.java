@@ -0,0 +1,320 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends a local file with HTTP validators and byte ranges: ETag / Last-Modified,
+ * If-None-Match / If-Modified-Since (304), Range / If-Range (206) and 416 for
+ * unsatisfiable ranges. A single range is served; multi-range requests get the whole
+ * file, which the HTTP spec allows.
+ * Behind the bundled nginx (which marks proxied requests with X-Download-Offload) files under
+ * uploads/ are not sent by the JVM at all: the response is an X-Accel-Redirect to an internal
+ * nginx location with a signed, short-lived link, and nginx serves the bytes, ranges and
+ * validators itself. Otherwise the body is handed to Tomcat's sendfile when the connector
+ * supports it, so the kernel copies file to socket directly; or FileChannel.transferTo.
+ */
+@Service
+public class FileDownloadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloadService.class);
+
+    private static final Pattern SINGLE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+    // Request attributes of Tomcat's sendfile support (NIO/NIO2 connectors, plain HTTP)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // Set by nginx on proxied requests; without it there is nobody to follow X-Accel-Redirect
+    static final String OFFLOAD_HEADER = "X-Download-Offload";
+    private static final String ACCEL_REDIRECT = "X-Accel-Redirect";
+    // Sample secrets of the docker setup: anyone could sign download links with them
+    private static final Set<String> PLACEHOLDER_SECRETS =
+            Set.of("change_me_download", "your_random_download_secret_here");
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${library.downloads.accel-location:/protected-files/}")
+    private String accelLocation;
+
+    // Shared with nginx (secure_link_md5); offloading is off while it is empty
+    @Value("${library.downloads.accel-secret:}")
+    private String accelSecret;
+
+    @Value("${library.downloads.accel-ttl-seconds:300}")
+    private long accelTtlSeconds;
+
+    @PostConstruct
+    public void checkAccelSecret() {
+        if (accelSecret != null && PLACEHOLDER_SECRETS.contains(accelSecret.trim())) {
+            throw new IllegalStateException("DOWNLOAD_SIGNING_SECRET is a sample value: set a random secret, "
+                    + "or leave it empty to turn download offloading off");
+        }
+    }
+
+    /**
+     * Byte range of a request, inclusive bounds
+     */
+    public static final class ByteRange {
+        private final long start;
+        private final long end;
+
+        ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+    }
+
+    /**
+     * Write the file (or the requested part of it) to the response
+     * @param file Existing regular file
+     * @param contentType Media type of the file
+     * @param downloadName File name offered to the browser, null to display inline
+     */
+    public void serve(Path file, String contentType, String downloadName,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (offload(file, contentType, downloadName, request, response)) {
+            return;
+        }
+
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis() / 1000 * 1000; // HTTP dates have seconds
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        if (downloadName != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(downloadName, StandardCharsets.UTF_8).build().toString());
+        }
+
+        ByteRange range = null;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            range = parseRange(rangeHeader, size);
+            if (range == null && isValidRange(rangeHeader)) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        long start = range != null ? range.getStart() : 0;
+        long length = range != null ? range.getLength() : size;
+        if (range != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + range.getStart() + "-" + range.getEnd() + "/" + size);
+        }
+        response.setContentLengthLong(length);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the bytes itself after the request completes
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        transfer(file, start, length, response.getOutputStream());
+    }
+
+    /**
+     * Let nginx send a file under uploads/: an empty response with X-Accel-Redirect to the
+     * internal location, signed the way nginx's secure_link module checks it
+     * (base64url(md5(expires + uri + " " + secret)), see docker/nginx/conf.d/default.conf).
+     * @return false if the request did not come through nginx or the file is outside uploads/
+     */
+    private boolean offload(Path file, String contentType, String downloadName,
+            HttpServletRequest request, HttpServletResponse response) {
+        if (accelSecret == null || accelSecret.isEmpty() || !"on".equals(request.getHeader(OFFLOAD_HEADER))) {
+            return false;
+        }
+        Path root = fileStorageService.getFileStorageLocation();
+        Path normalized = file.toAbsolutePath().normalize();
+        if (!normalized.startsWith(root)) {
+            return false;
+        }
+
+        String uri = accelLocation + UploadIndex.nameOf(root, normalized);
+        long expires = System.currentTimeMillis() / 1000 + accelTtlSeconds;
+        String token = signLink(uri, expires, accelSecret);
+        response.setHeader(ACCEL_REDIRECT, UriUtils.encodePath(uri, StandardCharsets.UTF_8)
+                + "?e=" + expires + "&st=" + token);
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (downloadName != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(downloadName, StandardCharsets.UTF_8).build().toString());
+        }
+        return true;
+    }
+
+    /**
+     * Token of nginx secure_link_md5 "$secure_link_expires$uri $secret"
+     */
+    static String signLink(String uri, long expires, String secret) {
+        try {
+            byte[] md5 = MessageDigest.getInstance("MD5")
+                    .digest((expires + uri + " " + secret).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(md5);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    /**
+     * Whether a Range request asks for the beginning of the file (used to count a download once)
+     */
+    public static boolean isInitialRequest(HttpServletRequest request) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        return range == null || range.trim().startsWith("bytes=0-");
+    }
+
+    /**
+     * Parse a single "bytes=" range against the file size
+     * @return The range, or null if the header is not a single range or cannot be satisfied
+     */
+    static ByteRange parseRange(String header, long size) {
+        Matcher matcher = SINGLE_RANGE.matcher(header.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (matcher.group(1).isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(matcher.group(2));
+                if (suffix == 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(matcher.group(1));
+                end = matcher.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(matcher.group(2)), size - 1);
+            }
+            return start < size && start <= end ? new ByteRange(start, end) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the header is one well-formed byte range; such a range that parseRange rejects is
+     * unsatisfiable (416), anything else (bytes=5-3, several ranges, other units) is ignored
+     */
+    static boolean isValidRange(String header) {
+        Matcher matcher = SINGLE_RANGE.matcher(header.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return false;
+        }
+        try {
+            return matcher.group(1).isEmpty() || matcher.group(2).isEmpty()
+                    || Long.parseLong(matcher.group(1)) <= Long.parseLong(matcher.group(2));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    // If-Range needs a strong validator match; a date only matches exactly
+    static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"")) {
+            return ifRange.trim().equals(etag);
+        }
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    static void transfer(Path file, long start, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    logger.warn("File {} shrank while being sent", file);
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
@@ -7,13 +8,76 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
+/**
+ * Files in uploads/ are content addressed: named by the SHA-256 of their bytes plus the original
+ * extension, so the same content is kept once however often it is uploaded or crawled.
+ * They are spread over two levels of directories named after the first two bytes of the digest
+ * (uploads/ab/cd/abcd....pdf), so no directory holds more than a few hundred files.
+ */
 @Service
 public class FileStorageService {
 
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    private static final String DEFAULT_EXTENSION = ".bin";
+    // Temp files start with a dot like the other non-book files in uploads/
+    private static final String TEMP_PREFIX = ".incoming-";
+    // "ab/cd/<digest>.ext" (or a flat "<digest>.ext" stored before sharding)
+    private static final Pattern CONTENT_NAME = Pattern.compile("(?:[0-9a-f]{2}/[0-9a-f]{2}/)?([0-9a-f]{64})\\.[a-z0-9]{1,10}");
+
     private final Path fileStorageLocation;
 
+    @Autowired
+    private UploadIndex uploadIndex;
+
+    /**
+     * Result of storing a stream: where the content lives and what it was called
+     */
+    public static final class StoredContent {
+        private final String digest;
+        private final String fileName;
+        private final String originalFileName;
+        private final long size;
+        private final boolean created;
+
+        StoredContent(String digest, String fileName, String originalFileName, long size, boolean created) {
+            this.digest = digest;
+            this.fileName = fileName;
+            this.originalFileName = originalFileName;
+            this.size = size;
+            this.created = created;
+        }
+
+        /** Hex SHA-256 of the content */
+        public String getDigest() {
+            return digest;
+        }
+
+        /** Name of the stored file in uploads/ */
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getOriginalFileName() {
+            return originalFileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /** False when a file with the same content was already stored */
+        public boolean isCreated() {
+            return created;
+        }
+    }
+
     public FileStorageService() {
         this.fileStorageLocation = Paths.get("uploads").toAbsolutePath().normalize();
         try {
@@ -23,7 +87,7 @@ public class FileStorageService {
         }
     }
 
-    public String storeFile(MultipartFile file) {
+    public StoredContent storeFile(MultipartFile file) {
         // Normalize file name
         String originalFileName = org.springframework.util.StringUtils.cleanPath(file.getOriginalFilename());
 
@@ -33,19 +97,128 @@ public class FileStorageService {
                 throw new RuntimeException("Sorry! Filename contains invalid path sequence " + originalFileName);
             }
 
-            // Generate a unique file name to avoid collisions
-            String fileName = UUID.randomUUID().toString() + "_" + originalFileName;
-
-            // Copy file to the target location (Replacing existing file with the same name)
-            Path targetLocation = this.fileStorageLocation.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
-            return fileName;
+            try (java.io.InputStream in = file.getInputStream()) {
+                return storeContent(in, originalFileName);
+            }
         } catch (IOException ex) {
             throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
         }
     }
 
+    /**
+     * Copy a stream into uploads/, hashing it on the way. The content goes to a temp file first
+     * and is moved to its digest name, or dropped if that name already exists.
+     */
+    public StoredContent storeContent(java.io.InputStream in, String originalFileName) throws IOException {
+        MessageDigest sha256 = newSha256();
+        Path temp = Files.createTempFile(this.fileStorageLocation, TEMP_PREFIX, ".tmp");
+        try {
+            long size;
+            try (DigestInputStream digestIn = new DigestInputStream(in, sha256)) {
+                size = Files.copy(digestIn, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String digest = HexFormat.of().formatHex(sha256.digest());
+            String fileName = contentName(digest, originalFileName);
+            Path target = this.fileStorageLocation.resolve(fileName);
+
+            if (Files.exists(target)) {
+                // Same bytes already stored: keep the existing file (and its timestamps)
+                return new StoredContent(digest, fileName, originalFileName, size, false);
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            indexFile(fileName, digest);
+            return new StoredContent(digest, fileName, originalFileName, size, true);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Give an existing file in uploads/ (stored before content addressing) its content name.
+     * The file is hard-linked (copied where links are not supported) to the new name and left
+     * in place, so it stays downloadable until the caller has switched its references over.
+     */
+    public StoredContent importFile(String existingName) throws IOException {
+        Path source = resolveExistingFile(existingName);
+        MessageDigest sha256 = newSha256();
+        long size;
+        try (DigestInputStream in = new DigestInputStream(Files.newInputStream(source), sha256)) {
+            size = in.transferTo(java.io.OutputStream.nullOutputStream());
+        }
+        String digest = HexFormat.of().formatHex(sha256.digest());
+        String fileName = contentName(digest, existingName);
+        Path target = this.fileStorageLocation.resolve(fileName);
+        if (fileName.equals(existingName) || Files.exists(target)) {
+            return new StoredContent(digest, fileName, existingName, size, false);
+        }
+
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, source);
+        } catch (java.nio.file.FileAlreadyExistsException e) {
+            return new StoredContent(digest, fileName, existingName, size, false);
+        } catch (IOException | UnsupportedOperationException e) {
+            Path temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, ".tmp");
+            try {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        indexFile(fileName, digest);
+        return new StoredContent(digest, fileName, existingName, size, true);
+    }
+
+    /**
+     * Sharded content name of a digest: "ab/cd/abcd...ef.pdf"
+     */
+    static String contentName(String digest, String originalFileName) {
+        return digest.substring(0, 2) + "/" + digest.substring(2, 4) + "/" + digest + extensionOf(originalFileName);
+    }
+
+    /**
+     * Digest encoded in a content name, or null for other (legacy) names
+     */
+    public static String digestOf(String fileName) {
+        java.util.regex.Matcher matcher = CONTENT_NAME.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void indexFile(String fileName, String digest) {
+        try {
+            Path file = this.fileStorageLocation.resolve(fileName);
+            uploadIndex.put(fileName, Files.size(file), Files.getLastModifiedTime(file).toMillis(), digest);
+        } catch (IOException e) {
+            // The index is only used for statistics; the next rebuild picks the file up
+        }
+    }
+
+    /**
+     * ".ext" of a file name in lower case, ".bin" if it has none usable in a stored name.
+     * Stored names always contain a dot so they are never mistaken for Drive file ids.
+     */
+    static String extensionOf(String fileName) {
+        if (fileName == null) {
+            return DEFAULT_EXTENSION;
+        }
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1) {
+            return DEFAULT_EXTENSION;
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? "." + extension : DEFAULT_EXTENSION;
+    }
+
     public org.springframework.core.io.Resource loadFileAsResource(String fileName) {
         try {
             Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
@@ -66,9 +239,9 @@ public class FileStorageService {
      * Download file from URL and save to uploads directory
      * @param fileUrl The URL of the file to download
      * @param fileName The name to save the file as (optional, will use URL filename if null)
-     * @return The saved filename
+     * @return The stored content (the saved filename is its digest name)
      */
-    public String downloadFileFromUrl(String fileUrl, String fileName) throws IOException {
+    public StoredContent downloadFileFromUrl(String fileUrl, String fileName) throws IOException {
         org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FileStorageService.class);
         
         try {
@@ -275,31 +448,40 @@ public class FileStorageService {
                 throw new RuntimeException("Sorry! Filename contains invalid path sequence " + originalFileName);
             }
 
-            // Generate unique filename
-            String savedFileName = UUID.randomUUID().toString() + "_" + originalFileName;
-
-            // Download file with proper connection handling
+            // Download file with proper connection handling, hashing it while it is written
+            StoredContent stored;
             try (java.io.InputStream in = connection.getInputStream()) {
-                Path targetLocation = this.fileStorageLocation.resolve(savedFileName);
-                long bytesCopied = Files.copy(in, targetLocation, StandardCopyOption.REPLACE_EXISTING);
-                logger.info("File downloaded successfully: {} bytes", bytesCopied);
-                
+                stored = storeContent(in, originalFileName);
+                logger.info("File downloaded successfully: {} bytes, sha256 {}{}", stored.getSize(),
+                        stored.getDigest(), stored.isCreated() ? "" : " (already stored)");
+
                 // Verify file size (should be reasonable, not just a few KB)
-                long fileSize = Files.size(targetLocation);
-                if (fileSize < 1024) { // Less than 1KB is suspicious
-                    logger.warn("Downloaded file is very small ({} bytes), may not be a valid file", fileSize);
+                if (stored.getSize() < 1024) { // Less than 1KB is suspicious
+                    logger.warn("Downloaded file is very small ({} bytes), may not be a valid file", stored.getSize());
                 }
             } finally {
                 connection.disconnect();
             }
 
-            return savedFileName;
+            return stored;
         } catch (Exception ex) {
             logger.error("Error downloading file from URL: {}", fileUrl, ex);
             throw new IOException("Could not download file from URL: " + fileUrl + " - " + ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Path of a stored file, refusing names that point outside the uploads directory
+     * @throws RuntimeException if the file does not exist
+     */
+    public Path resolveExistingFile(String fileName) {
+        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
+        if (!filePath.startsWith(this.fileStorageLocation) || !Files.isRegularFile(filePath)) {
+            throw new RuntimeException("File not found " + fileName);
+        }
+        return filePath;
+    }
+
     /**
      * Get file size from saved filename
      */
@@ -321,6 +503,7 @@ public class FileStorageService {
         try {
             Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
             boolean deleted = Files.deleteIfExists(filePath);
+            uploadIndex.remove(UploadIndex.nameOf(this.fileStorageLocation, filePath));
             if (deleted) {
                 org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FileStorageService.class);
                 logger.info("File deleted from uploads: {}", fileName);
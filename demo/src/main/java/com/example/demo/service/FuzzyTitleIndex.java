@@ -0,0 +1,318 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookTitleView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Typo-tolerant lookup over accent-folded Book.title and author.
+ * Every word is split into padded trigrams ("$viet$" -> "$vi", "vie", "iet", "et$");
+ * candidates are the books sharing enough trigrams with the query, which are then
+ * re-ranked by per-word edit distance. Used by BookService when the exact index
+ * finds too few results.
+ * Memory is bounded per book (MAX_WORDS words, MAX_TRIGRAMS trigrams) and query cost
+ * is bounded by skipping trigrams common to a large share of the library and by
+ * re-ranking at most MAX_CANDIDATES books.
+ */
+@Component
+public class FuzzyTitleIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FuzzyTitleIndex.class);
+
+    private static final int MAX_WORDS = 24;
+    private static final int MAX_TRIGRAMS = 96;
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final int MAX_CANDIDATES = 200;
+    // Trigrams found in more books than this share (and at least MIN_SKIPPED_POSTINGS) carry
+    // almost no signal, scanning them would dominate the query time
+    private static final double MAX_TRIGRAM_SHARE = 0.05;
+    private static final int MIN_SKIPPED_POSTINGS = 1000;
+    // Share of the query trigrams a candidate must contain
+    private static final double MIN_OVERLAP = 0.4;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // trigram -> posting list index + 1 (0 means unknown trigram)
+    private LongIntHashMap trigramIds = new LongIntHashMap(4096);
+    private final List<IntList> postings = new ArrayList<>();
+    // Books are addressed by a dense ordinal (starting at 1) in the posting lists
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    // Ordinal 0 is never used (0 is the empty key of LongIntHashMap)
+    private final List<Document> documents = new ArrayList<>(java.util.Collections.singletonList(null));
+    private int liveDocuments = 0;
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try (Stream<BookTitleView> books = bookRepository.streamTitleViews()) {
+            trigramIds = new LongIntHashMap(4096);
+            postings.clear();
+            ordinals.clear();
+            documents.clear();
+            documents.add(null); // ordinal 0 is never used
+            liveDocuments = 0;
+            books.forEach(book -> addDocument(book.getId(), book.getTitle(), book.getAuthor()));
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Fuzzy index built: {} books, {} trigrams in {} ms",
+                liveDocuments, postings.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.getBookId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(event.getBookId());
+            if (!event.isDeleted()) {
+                addDocument(event.getBookId(), event.getTitle(), event.getAuthor());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Books whose title or author approximately match the query
+     * @param query Free-text query, accents and small typos allowed
+     * @param limit Maximum number of ids to return
+     * @return Book ids, closest match first
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> queryWords = TextNormalizer.tokenize(query).stream().distinct().limit(MAX_QUERY_WORDS).toList();
+        if (queryWords.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        long[] queryTrigrams = trigrams(queryWords, Integer.MAX_VALUE);
+
+        lock.readLock().lock();
+        try {
+            int maxPostings = Math.max(MIN_SKIPPED_POSTINGS, (int) (liveDocuments * MAX_TRIGRAM_SHARE));
+            LongIntHashMap overlap = new LongIntHashMap(1024);
+            int usedTrigrams = 0;
+            for (long trigram : queryTrigrams) {
+                int postingId = trigramIds.get(trigram) - 1;
+                if (postingId >= 0 && postings.get(postingId).size > maxPostings) {
+                    continue;
+                }
+                usedTrigrams++;
+                if (postingId < 0) {
+                    continue;
+                }
+                IntList posting = postings.get(postingId);
+                for (int i = 0; i < posting.size; i++) {
+                    overlap.addTo(posting.values[i], 1);
+                }
+            }
+            if (overlap.isEmpty()) {
+                return List.of();
+            }
+
+            // Skipped (very common) trigrams do not count against a candidate
+            int minOverlap = Math.max(1, (int) Math.ceil(usedTrigrams * MIN_OVERLAP));
+            // Keep the MAX_CANDIDATES books sharing the most trigrams, packed as (overlap, ordinal)
+            long[] packed = new long[overlap.size()];
+            int[] count = { 0 };
+            overlap.forEach((ordinal, shared) -> {
+                if (shared >= minOverlap) {
+                    packed[count[0]++] = ((long) shared << 32) | ordinal;
+                }
+            });
+            long[] candidates = Arrays.copyOf(packed, count[0]);
+            Arrays.sort(candidates);
+
+            List<long[]> ranked = new ArrayList<>();
+            for (int i = candidates.length - 1; i >= 0 && i >= candidates.length - MAX_CANDIDATES; i--) {
+                int ordinal = (int) candidates[i];
+                Document document = documents.get(ordinal);
+                int distance = distance(queryWords, document.words);
+                if (distance >= 0) {
+                    // [0] = edit distance, [1] = shared trigrams, [2] = book id
+                    ranked.add(new long[] { distance, candidates[i] >>> 32, document.bookId });
+                }
+            }
+            ranked.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                    : a[1] != b[1] ? Long.compare(b[1], a[1])
+                    : Long.compare(b[2], a[2]));
+            return ranked.stream().limit(limit).map(r -> r[2]).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers must hold the write lock
+    private void addDocument(Long bookId, String title, String author) {
+        List<String> words = new ArrayList<>(TextNormalizer.tokenize(title));
+        words.addAll(TextNormalizer.tokenize(author));
+        if (words.isEmpty()) {
+            return;
+        }
+        if (words.size() > MAX_WORDS) {
+            words = words.subList(0, MAX_WORDS);
+        }
+
+        int ordinal = ordinals.computeIfAbsent(bookId, id -> {
+            documents.add(null);
+            return documents.size() - 1;
+        });
+        long[] bookTrigrams = trigrams(words, MAX_TRIGRAMS);
+        int[] postingIds = new int[bookTrigrams.length];
+        for (int i = 0; i < bookTrigrams.length; i++) {
+            int postingId = trigramIds.get(bookTrigrams[i]) - 1;
+            if (postingId < 0) {
+                postings.add(new IntList());
+                postingId = postings.size() - 1;
+                trigramIds.put(bookTrigrams[i], postingId + 1);
+            }
+            postings.get(postingId).add(ordinal);
+            postingIds[i] = postingId;
+        }
+        documents.set(ordinal, new Document(bookId, words.toArray(new String[0]), postingIds));
+        liveDocuments++;
+    }
+
+    // Callers must hold the write lock. The ordinal is kept for the book and reused if it is saved again.
+    private void removeDocument(Long bookId) {
+        Integer ordinal = ordinals.get(bookId);
+        Document document = ordinal != null ? documents.get(ordinal) : null;
+        if (document == null) {
+            return;
+        }
+        for (int postingId : document.postingIds) {
+            postings.get(postingId).remove(ordinal);
+        }
+        documents.set(ordinal, null);
+        liveDocuments--;
+    }
+
+    // Distinct padded trigrams of the words, each encoded as three 16-bit chars in one long
+    private static long[] trigrams(List<String> words, int max) {
+        Set<Long> result = new LinkedHashSet<>();
+        for (String word : words) {
+            String padded = "$" + word + "$";
+            for (int i = 0; i + 3 <= padded.length() && result.size() < max; i++) {
+                result.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            }
+        }
+        return result.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Sum over the query words of the edit distance to the closest book word,
+     * or -1 if some query word has no book word within its allowed number of edits
+     */
+    private static int distance(List<String> queryWords, String[] bookWords) {
+        int total = 0;
+        for (String queryWord : queryWords) {
+            int allowed = queryWord.length() <= 3 ? 0 : queryWord.length() <= 6 ? 1 : 2;
+            int best = allowed + 1;
+            for (String bookWord : bookWords) {
+                best = Math.min(best, boundedLevenshtein(queryWord, bookWord, best - 1));
+                if (best == 0) {
+                    break;
+                }
+            }
+            if (best > allowed) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * Levenshtein distance, or max + 1 as soon as it is known to exceed max
+     */
+    static int boundedLevenshtein(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static final class Document {
+        private final long bookId;
+        private final String[] words;
+        private final int[] postingIds;
+
+        private Document(long bookId, String[] words, int[] postingIds) {
+            this.bookId = bookId;
+            this.words = words;
+            this.postingIds = postingIds;
+        }
+    }
+
+    /**
+     * Growable int array of book ordinals; unordered, removal is swap-with-last
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
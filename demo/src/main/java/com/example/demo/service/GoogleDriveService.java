@@ -268,6 +268,15 @@ public class GoogleDriveService {
      * @return File ID of the uploaded file
      */
     public String uploadFile(InputStream fileInputStream, String fileName, String mimeType) throws IOException, GeneralSecurityException {
+        return uploadFileWithMetadata(fileInputStream, fileName, mimeType).getId();
+    }
+
+    /**
+     * Upload a file to Google Drive and return its metadata from the same call
+     * (id, name, size, mimeType, webContentLink), so callers need no extra files().get
+     * @return Metadata of the uploaded file
+     */
+    public File uploadFileWithMetadata(InputStream fileInputStream, String fileName, String mimeType) throws IOException, GeneralSecurityException {
         Drive drive = getDriveService();
         if (drive == null) {
             throw new IOException("Google Drive service is not available. Please authorize OAuth 2.0 first by visiting /oauth2/authorize");
@@ -315,7 +324,7 @@ public class GoogleDriveService {
                 logger.warn("⚠️ WARNING: File has no parent folder!");
             }
             
-            return uploadedFile.getId();
+            return uploadedFile;
         } catch (com.google.api.client.googleapis.json.GoogleJsonResponseException e) {
             logger.error("❌❌❌ Google Drive API Error! ❌❌❌");
             logger.error("Error code: {}", e.getStatusCode());
@@ -528,13 +537,19 @@ public class GoogleDriveService {
             throw new IOException("Google Drive service is not available. Please authorize OAuth 2.0 first by visiting /oauth2/authorize");
         }
         File file = drive.files().get(fileId).setFields("webContentLink, id, name").execute();
-        // Return direct download URL (modify webContentLink to force download)
+        return toDownloadUrl(file);
+    }
+
+    /**
+     * Direct download URL of a Drive file from its metadata (webContentLink forced to download)
+     */
+    public static String toDownloadUrl(File file) {
         String webContentLink = file.getWebContentLink();
         if (webContentLink != null && webContentLink.contains("&export=download") == false) {
             // Add export=download parameter
             webContentLink = webContentLink + (webContentLink.contains("?") ? "&" : "?") + "export=download";
         }
-        return webContentLink != null ? webContentLink : "https://drive.google.com/uc?id=" + fileId + "&export=download";
+        return webContentLink != null ? webContentLink : "https://drive.google.com/uc?id=" + file.getId() + "&export=download";
     }
 
     /**
@@ -566,6 +581,38 @@ public class GoogleDriveService {
         return response.getContent();
     }
 
+    /**
+     * One page of the files in the upload folder (not trashed)
+     * @param pageToken nextPageToken of the previous page, null for the first page
+     * @return The page; getNextPageToken() is null on the last one
+     */
+    public com.google.api.services.drive.model.FileList listFolderPage(String pageToken, int pageSize)
+            throws IOException, GeneralSecurityException {
+        Drive drive = getDriveService();
+        if (drive == null) {
+            throw new IOException("Google Drive service is not available. Please authorize OAuth 2.0 first by visiting /oauth2/authorize");
+        }
+        return drive.files().list()
+                .setQ("'" + driveFolderId + "' in parents and trashed = false")
+                .setFields("nextPageToken, files(id, name, size, createdTime)")
+                .setPageSize(pageSize)
+                .setPageToken(pageToken)
+                .execute();
+    }
+
+    /**
+     * Move a file to the Drive trash (recoverable for 30 days, unlike deleteFile)
+     * @param fileId Google Drive file ID
+     */
+    public void trashFile(String fileId) throws IOException, GeneralSecurityException {
+        Drive drive = getDriveService();
+        if (drive == null) {
+            throw new IOException("Google Drive service is not available. Please authorize OAuth 2.0 first by visiting /oauth2/authorize");
+        }
+        drive.files().update(fileId, new File().setTrashed(true)).execute();
+        logger.info("File moved to Google Drive trash: {}", fileId);
+    }
+
     /**
      * Delete file from Google Drive
      * @param fileId Google Drive file ID
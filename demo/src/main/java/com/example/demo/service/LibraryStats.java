@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the library statistics shown on the admin dashboard
+ */
+public class LibraryStats {
+
+    private final long bookCount;
+    private final long userCount;
+    private final long categoryCount;
+    private final long reviewCount;
+    private final long localFileCount;
+    private final long localStorageBytes;
+    private final long driveFileCount;
+    private final long driveStorageBytes;
+    // Files actually on disk in uploads/ (shared content counted once), from the upload index
+    private final long diskFileCount;
+    private final long diskStorageBytes;
+    private final List<TopBook> topViewedBooks;
+    private final boolean driveAvailable;
+    private final LocalDateTime refreshedAt;
+
+    public LibraryStats(long bookCount, long userCount, long categoryCount, long reviewCount,
+            long localFileCount, long localStorageBytes, long driveFileCount, long driveStorageBytes,
+            long diskFileCount, long diskStorageBytes, List<TopBook> topViewedBooks, boolean driveAvailable, LocalDateTime refreshedAt) {
+        this.bookCount = bookCount;
+        this.userCount = userCount;
+        this.categoryCount = categoryCount;
+        this.reviewCount = reviewCount;
+        this.localFileCount = localFileCount;
+        this.localStorageBytes = localStorageBytes;
+        this.driveFileCount = driveFileCount;
+        this.driveStorageBytes = driveStorageBytes;
+        this.diskFileCount = diskFileCount;
+        this.diskStorageBytes = diskStorageBytes;
+        this.topViewedBooks = List.copyOf(topViewedBooks);
+        this.driveAvailable = driveAvailable;
+        this.refreshedAt = refreshedAt;
+    }
+
+    /**
+     * Placeholder used until the first refresh has completed
+     */
+    public static LibraryStats empty() {
+        return new LibraryStats(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, List.of(), false, null);
+    }
+
+    public long getBookCount() {
+        return bookCount;
+    }
+
+    public long getUserCount() {
+        return userCount;
+    }
+
+    public long getCategoryCount() {
+        return categoryCount;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public long getLocalFileCount() {
+        return localFileCount;
+    }
+
+    public long getLocalStorageBytes() {
+        return localStorageBytes;
+    }
+
+    public long getDriveFileCount() {
+        return driveFileCount;
+    }
+
+    public long getDriveStorageBytes() {
+        return driveStorageBytes;
+    }
+
+    public long getDiskFileCount() {
+        return diskFileCount;
+    }
+
+    public long getDiskStorageBytes() {
+        return diskStorageBytes;
+    }
+
+    public List<TopBook> getTopViewedBooks() {
+        return topViewedBooks;
+    }
+
+    public boolean isDriveAvailable() {
+        return driveAvailable;
+    }
+
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public static class TopBook {
+        private final Long id;
+        private final String title;
+        private final long viewCount;
+
+        public TopBook(Long id, String title, long viewCount) {
+            this.id = id;
+            this.title = title;
+            this.viewCount = viewCount;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public long getViewCount() {
+            return viewCount;
+        }
+    }
+}
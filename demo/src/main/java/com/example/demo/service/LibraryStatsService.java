@@ -0,0 +1,104 @@
+package com.example.demo.service;
+
+import com.example.demo.model.BookFile;
+import com.example.demo.repository.BookFileRepository;
+import com.example.demo.repository.BookFileStorageView;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.CategoryRepository;
+import com.example.demo.repository.ReviewRepository;
+import com.example.demo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a periodically refreshed snapshot of the dashboard statistics
+ * (counts, storage per backend, most viewed books, Drive health),
+ * so rendering the admin dashboard never queries the database or Google Drive.
+ */
+@Service
+public class LibraryStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryStatsService.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private BookFileRepository bookFileRepository;
+
+    @Autowired
+    private GoogleDriveService googleDriveService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UploadIndex uploadIndex;
+
+    private volatile LibraryStats snapshot = LibraryStats.empty();
+
+    public LibraryStats getSnapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${library.stats.refresh-interval-ms:60000}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        try {
+            // [localFiles, localBytes, driveFiles, driveBytes]
+            long[] storage = transactionTemplate.execute(status -> sumStorageByBackend());
+
+            List<LibraryStats.TopBook> topViewed = bookRepository.findTop5ByOrderByViewCountDescIdDesc().stream()
+                    .map(b -> new LibraryStats.TopBook(b.getId(), b.getTitle(),
+                            b.getViewCount() != null ? b.getViewCount() : 0L))
+                    .toList();
+
+            boolean driveAvailable;
+            try {
+                driveAvailable = googleDriveService.isDriveAvailable();
+            } catch (Exception e) {
+                // Dashboard must still render if OAuth is not configured
+                driveAvailable = false;
+            }
+
+            snapshot = new LibraryStats(bookRepository.count(), userRepository.count(), categoryRepository.count(),
+                    reviewRepository.count(), storage[0], storage[1], storage[2], storage[3],
+                    uploadIndex.getFileCount(), uploadIndex.getTotalBytes(),
+                    topViewed, driveAvailable, LocalDateTime.now());
+            logger.debug("Library stats refreshed in {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.warn("Failed to refresh library stats, keeping previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    // Streams (path, size) of every BookFile; must run inside a transaction
+    private long[] sumStorageByBackend() {
+        long[] storage = new long[4];
+        try (Stream<BookFileStorageView> files = bookFileRepository.streamStorageViews()) {
+            files.forEach(file -> {
+                long size = file.getFileSize() != null ? file.getFileSize() : 0L;
+                int offset = BookFile.isDriveFileId(file.getFilePath()) ? 2 : 0;
+                storage[offset]++;
+                storage[offset + 1] += size;
+            });
+        }
+        return storage;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+/**
+ * Minimal open-addressing hash map from long keys to int values.
+ * Used by the recommendation job to count co-occurrences without boxing
+ * every id and counter. Key 0 is reserved as the empty slot marker
+ * (entity ids start at 1). Not thread-safe.
+ */
+final class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    LongIntHashMap() {
+        this(16);
+    }
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean containsKey(long key) {
+        return key != 0 && keys[slot(key)] == key;
+    }
+
+    /**
+     * @return the value for the key, or 0 when absent
+     */
+    int get(long key) {
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    void put(long key, int value) {
+        int slot = slot(key);
+        if (keys[slot] == key) {
+            values[slot] = value;
+            return;
+        }
+        insert(slot, key, value);
+    }
+
+    void addTo(long key, int delta) {
+        int slot = slot(key);
+        if (keys[slot] == key) {
+            values[slot] += delta;
+            return;
+        }
+        insert(slot, key, delta);
+    }
+
+    long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        for (long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    void forEach(Consumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void insert(int slot, long key, int value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // Linear probing: the slot holding the key, or the first empty slot on its probe path
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    interface Consumer {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.demo.service;
+
+import com.example.demo.model.BookFile;
+import com.example.demo.repository.BookFileRepository;
+import com.example.demo.repository.BookFileStorageView;
+import com.example.demo.repository.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Finds files nobody refers to any more, in uploads/ and in the Drive upload folder, and
+ * deletes them: files of deleted books, local copies left by failed crawls, temp files of
+ * interrupted uploads. Referenced paths (BookFile rows and stored blobs) are streamed into a
+ * sorted array of 64-bit hashes, then the directory tree and the paginated Drive listing are
+ * checked against it, so memory stays at 8 bytes per referenced file.
+ * Anything younger than the grace period is left alone (it may belong to a book being saved);
+ * Drive orphans go to the Drive trash. Deletions run in small batches with a pause between them.
+ * In dry-run mode (the default) only the report is produced.
+ */
+@Service
+public class OrphanReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanReconciler.class);
+
+    private static final int DRIVE_PAGE_SIZE = 1000;
+    private static final String TEMP_PREFIX = ".incoming-";
+
+    @Autowired
+    private BookFileRepository bookFileRepository;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private GoogleDriveService googleDriveService;
+
+    @Autowired
+    private UploadIndex uploadIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Proxy of this bean, so that @Async applies to calls from scheduledRun
+    @Lazy
+    @Autowired
+    private OrphanReconciler self;
+
+    @Value("${library.orphans.dry-run:true}")
+    private boolean dryRunByDefault;
+
+    @Value("${library.orphans.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${library.orphans.batch-size:100}")
+    private int batchSize;
+
+    @Value("${library.orphans.batch-pause-ms:1000}")
+    private long batchPauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile OrphanReport lastReport;
+
+    // One orphan: a name in uploads/ or a Drive file id
+    static final class Orphan {
+        final String key;
+        final boolean drive;
+
+        Orphan(String key, boolean drive) {
+            this.key = key;
+            this.drive = drive;
+        }
+    }
+
+    /**
+     * Report of the last finished run, null before the first one
+     */
+    public OrphanReport getLastReport() {
+        return lastReport;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Hands the run to the async executor: a long walk and the batch pauses would otherwise hold
+     * the single scheduler thread every other @Scheduled job runs on
+     */
+    @Scheduled(cron = "${library.orphans.cron:0 15 4 * * *}")
+    public void scheduledRun() {
+        self.reconcileAsync(dryRunByDefault);
+    }
+
+    /**
+     * Start a run in the background (admin dashboard)
+     */
+    @Async
+    public void reconcileAsync(boolean dryRun) {
+        reconcile(dryRun);
+    }
+
+    /**
+     * @return The report, or null if a run is already in progress
+     */
+    public OrphanReport reconcile(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Orphan reconciliation already running, skipped");
+            return null;
+        }
+        OrphanReport report = new OrphanReport(dryRun);
+        try {
+            long cutoff = System.currentTimeMillis() - graceHours * 3_600_000L;
+            SortedLongSet localReferences = new SortedLongSet();
+            SortedLongSet driveReferences = new SortedLongSet();
+            transactionTemplate.execute(status -> {
+                collectReferences(localReferences, driveReferences, report);
+                return null;
+            });
+            localReferences.seal();
+            driveReferences.seal();
+            report.setReferencedPaths(localReferences.size() + driveReferences.size());
+
+            List<Orphan> orphans = new ArrayList<>();
+            scanUploads(localReferences, cutoff, orphans, report);
+            scanDrive(driveReferences, cutoff, orphans, report);
+
+            if (!dryRun) {
+                delete(orphans, report);
+            }
+        } catch (Exception e) {
+            report.setError(e.getMessage());
+            logger.error("❌ Orphan reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            report.finish();
+            lastReport = report;
+            running.set(false);
+        }
+        logger.info("🧹 Orphan reconciliation finished: {}", report);
+        return report;
+    }
+
+    // Must run inside a transaction (streamed queries)
+    private void collectReferences(SortedLongSet localReferences, SortedLongSet driveReferences,
+            OrphanReport report) {
+        boolean indexLoaded = uploadIndex.isLoaded();
+        try (Stream<BookFileStorageView> files = bookFileRepository.streamStorageViews()) {
+            files.forEach(file -> {
+                String path = file.getFilePath();
+                if (path == null) {
+                    return;
+                }
+                if (BookFile.isDriveFileId(path)) {
+                    driveReferences.add(SortedLongSet.hash(path));
+                    return;
+                }
+                localReferences.add(SortedLongSet.hash(path));
+                boolean exists = indexLoaded ? uploadIndex.get(path) != null
+                        : Files.exists(fileStorageService.getFileStorageLocation().resolve(path));
+                if (!exists) {
+                    report.incrementMissingLocalFiles();
+                }
+            });
+        }
+        try (Stream<String> names = storedBlobRepository.streamLocalNames()) {
+            names.forEach(name -> localReferences.add(SortedLongSet.hash(name)));
+        }
+    }
+
+    void scanUploads(SortedLongSet references, long cutoff, List<Orphan> orphans, OrphanReport report)
+            throws IOException {
+        Path root = fileStorageService.getFileStorageLocation();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                // Dot directories are caches with their own eviction
+                return dir.equals(root) || !dir.getFileName().toString().startsWith(".")
+                        ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String name = UploadIndex.nameOf(root, file);
+                String fileName = file.getFileName().toString();
+                boolean old = attributes.lastModifiedTime().toMillis() < cutoff;
+                if (fileName.startsWith(".")) {
+                    // Snapshots and indexes are kept; only stale temp files of interrupted uploads go
+                    if (fileName.startsWith(TEMP_PREFIX) && old) {
+                        report.incrementPartialFiles();
+                        report.addLocalOrphan(attributes.size());
+                        report.addSample("uploads/" + name);
+                        orphans.add(new Orphan(name, false));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+                report.incrementLocalFilesScanned();
+                if (old && !references.contains(SortedLongSet.hash(name))) {
+                    report.addLocalOrphan(attributes.size());
+                    report.addSample("uploads/" + name);
+                    orphans.add(new Orphan(name, false));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Skipping {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void scanDrive(SortedLongSet references, long cutoff, List<Orphan> orphans, OrphanReport report) {
+        try {
+            if (!googleDriveService.isDriveAvailable()) {
+                logger.info("Google Drive not available, Drive folder not reconciled");
+                return;
+            }
+            String pageToken = null;
+            do {
+                com.google.api.services.drive.model.FileList page =
+                        googleDriveService.listFolderPage(pageToken, DRIVE_PAGE_SIZE);
+                if (page.getFiles() != null) {
+                    for (com.google.api.services.drive.model.File file : page.getFiles()) {
+                        report.incrementDriveFilesScanned();
+                        boolean old = file.getCreatedTime() == null || file.getCreatedTime().getValue() < cutoff;
+                        if (old && !references.contains(SortedLongSet.hash(file.getId()))) {
+                            report.addDriveOrphan(file.getSize() != null ? file.getSize() : 0L);
+                            report.addSample("drive:" + file.getId() + " (" + file.getName() + ")");
+                            orphans.add(new Orphan(file.getId(), true));
+                        }
+                    }
+                }
+                pageToken = page.getNextPageToken();
+            } while (pageToken != null);
+            report.setDriveScanned(true);
+        } catch (Exception e) {
+            // Local results are still valid; Drive orphans found so far are deleted as well
+            report.setError("Drive listing failed: " + e.getMessage());
+            logger.warn("⚠️ Drive listing failed: {}", e.getMessage());
+        }
+    }
+
+    void delete(List<Orphan> orphans, OrphanReport report) throws InterruptedException {
+        for (int i = 0; i < orphans.size(); i++) {
+            if (i > 0 && i % batchSize == 0) {
+                // Throttle: leave disk and Drive quota to the site
+                Thread.sleep(batchPauseMs);
+            }
+            Orphan orphan = orphans.get(i);
+            try {
+                // A book may have been saved with this file since the scan
+                if (bookFileRepository.existsByFilePath(orphan.key)) {
+                    continue;
+                }
+                if (orphan.drive) {
+                    googleDriveService.trashFile(orphan.key);
+                    storedBlobRepository.clearDriveFileId(orphan.key);
+                    report.incrementDeleted();
+                } else if (!storedBlobRepository.existsByLocalName(orphan.key)
+                        && fileStorageService.deleteFile(orphan.key)) {
+                    report.incrementDeleted();
+                }
+            } catch (Exception e) {
+                report.incrementFailed();
+                logger.warn("⚠️ Failed to delete orphan {}: {}", orphan.key, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of one orphan reconciliation run, shown on the admin dashboard
+ */
+public class OrphanReport {
+
+    // Orphans listed by name in the report; the rest are only counted
+    static final int MAX_SAMPLES = 50;
+
+    private final boolean dryRun;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private LocalDateTime finishedAt;
+    private long referencedPaths;
+    private long localFilesScanned;
+    private long localOrphans;
+    private long localOrphanBytes;
+    private long partialFiles;
+    private long missingLocalFiles;
+    private boolean driveScanned;
+    private long driveFilesScanned;
+    private long driveOrphans;
+    private long driveOrphanBytes;
+    private long deleted;
+    private long failed;
+    private String error;
+    private final List<String> samples = new ArrayList<>();
+
+    OrphanReport(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    void addSample(String description) {
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add(description);
+        }
+    }
+
+    void addLocalOrphan(long size) {
+        localOrphans++;
+        localOrphanBytes += size;
+    }
+
+    void addDriveOrphan(long size) {
+        driveOrphans++;
+        driveOrphanBytes += size;
+    }
+
+    void incrementLocalFilesScanned() {
+        localFilesScanned++;
+    }
+
+    void incrementDriveFilesScanned() {
+        driveFilesScanned++;
+    }
+
+    void incrementPartialFiles() {
+        partialFiles++;
+    }
+
+    void incrementMissingLocalFiles() {
+        missingLocalFiles++;
+    }
+
+    void incrementDeleted() {
+        deleted++;
+    }
+
+    void incrementFailed() {
+        failed++;
+    }
+
+    void setReferencedPaths(long referencedPaths) {
+        this.referencedPaths = referencedPaths;
+    }
+
+    void setDriveScanned(boolean driveScanned) {
+        this.driveScanned = driveScanned;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    void finish() {
+        finishedAt = LocalDateTime.now();
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getReferencedPaths() {
+        return referencedPaths;
+    }
+
+    public long getLocalFilesScanned() {
+        return localFilesScanned;
+    }
+
+    public long getLocalOrphans() {
+        return localOrphans;
+    }
+
+    public long getLocalOrphanBytes() {
+        return localOrphanBytes;
+    }
+
+    /** Temp files left behind by interrupted uploads or crawls */
+    public long getPartialFiles() {
+        return partialFiles;
+    }
+
+    /** BookFile rows whose local file does not exist (reported, never changed) */
+    public long getMissingLocalFiles() {
+        return missingLocalFiles;
+    }
+
+    public boolean isDriveScanned() {
+        return driveScanned;
+    }
+
+    public long getDriveFilesScanned() {
+        return driveFilesScanned;
+    }
+
+    public long getDriveOrphans() {
+        return driveOrphans;
+    }
+
+    public long getDriveOrphanBytes() {
+        return driveOrphanBytes;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<String> getSamples() {
+        return samples;
+    }
+
+    @Override
+    public String toString() {
+        return (dryRun ? "dry run, " : "") + "referenced=" + referencedPaths
+                + ", local scanned=" + localFilesScanned + ", local orphans=" + localOrphans
+                + " (" + localOrphanBytes + " bytes), partial=" + partialFiles
+                + ", missing=" + missingLocalFiles
+                + ", drive scanned=" + (driveScanned ? driveFilesScanned : "skipped")
+                + ", drive orphans=" + driveOrphans + " (" + driveOrphanBytes + " bytes)"
+                + ", deleted=" + deleted + ", failed=" + failed
+                + (error != null ? ", error=" + error : "");
+    }
+}
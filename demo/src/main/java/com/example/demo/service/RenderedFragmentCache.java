@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Rendered HTML of the catalog book cards and of the header category menu.
+ * Each entry is stored under a key (one per book, one for the menu) together with the
+ * version it was rendered from: the card itself for a book (its fields are exactly what
+ * the markup shows), the category list version for the menu. A lookup with a different
+ * version re-renders and replaces the entry, so nothing has to be invalidated explicitly.
+ * Entries are evicted least recently used first once their estimated size exceeds
+ * library.fragments.max-bytes.
+ */
+@Service
+public class RenderedFragmentCache {
+
+    private static final String CARD_TEMPLATE = "fragments/book-card";
+    private static final String MENU_TEMPLATE = "fragments/category-menu";
+    // Rough per-entry cost of the map node, the entry object and the String headers
+    private static final long ENTRY_OVERHEAD = 96;
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Value("${library.fragments.max-bytes:16777216}")
+    private long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Fragment> fragments = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Markup of the given cards, concatenated in order
+     */
+    public String renderCards(List<BookCard> cards) {
+        StringBuilder html = new StringBuilder(cards.size() * 2048);
+        for (BookCard card : cards) {
+            html.append(get("card:" + card.getId(), card, () -> render(CARD_TEMPLATE, "card", "book", card)));
+        }
+        return html.toString();
+    }
+
+    /**
+     * Links of the header "Danh mục" dropdown
+     */
+    public String renderCategoryMenu() {
+        // Version read before the list: a list newer than its version is re-rendered on the next call
+        long version = categoryService.getVersion();
+        return get("menu", version, () -> render(MENU_TEMPLATE, "menu", "categories", categoryService.findAll()));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return fragments.size();
+    }
+
+    private String get(String key, Object version, Supplier<String> renderer) {
+        synchronized (this) {
+            Fragment cached = fragments.get(key);
+            if (cached != null && Objects.equals(cached.version, version)) {
+                hits.increment();
+                return cached.html;
+            }
+        }
+
+        // Rendered outside the lock; two concurrent misses just render twice
+        misses.increment();
+        String html = renderer.get();
+        Fragment fragment = new Fragment(version, html, ENTRY_OVERHEAD + 2L * (key.length() + html.length()));
+        if (fragment.bytes <= maxBytes) {
+            put(key, fragment);
+        }
+        return html;
+    }
+
+    private synchronized void put(String key, Fragment fragment) {
+        Fragment previous = fragments.put(key, fragment);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += fragment.bytes;
+        Iterator<Fragment> eldest = fragments.values().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private String render(String template, String fragment, String variable, Object value) {
+        Context context = new Context(LocaleContextHolder.getLocale(), Map.of(variable, value));
+        return templateEngine.process(template, Set.of(fragment), context);
+    }
+
+    private static final class Fragment {
+        private final Object version;
+        private final String html;
+        private final long bytes;
+
+        private Fragment(Object version, String html, long bytes) {
+            this.version = version;
+            this.html = html;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.service;
+
+/**
+ * Published by ReviewService when a review is created or its rating changes,
+ * so the recommendation index can update the affected books incrementally.
+ */
+public class ReviewChangedEvent {
+
+    private final Long bookId;
+    private final Long userId;
+    private final Integer rating;
+
+    public ReviewChangedEvent(Long bookId, Long userId, Integer rating) {
+        this.bookId = bookId;
+        this.userId = userId;
+        this.rating = rating;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Integer getRating() {
+        return rating;
+    }
+}
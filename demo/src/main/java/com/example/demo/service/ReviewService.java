@@ -1,26 +1,94 @@
 package com.example.demo.service;
 
 import com.example.demo.model.Review;
+import com.example.demo.repository.BookRepository;
 import com.example.demo.repository.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Service
 public class ReviewService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReviewService.class);
+
     @Autowired
     private ReviewRepository reviewRepository;
 
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private org.springframework.context.ApplicationEventPublisher eventPublisher;
+
     public List<Review> findByBookId(Long bookId) {
         return reviewRepository.findByBookIdOrderByCreatedAtDesc(bookId);
     }
 
+    /**
+     * Insert or update a review and apply the change to the book's rating aggregates
+     * in the same transaction
+     */
+    @Transactional
     public Review save(Review review) {
-        return reviewRepository.save(review);
+        Integer previousRating = review.getId() != null ? review.getPersistedRating() : null;
+        Review savedReview = reviewRepository.save(review);
+        Integer newRating = savedReview.getRating();
+
+        long[] bucketDeltas = new long[5];
+        long countDelta = 0;
+        long sumDelta = 0;
+        if (previousRating != null && previousRating >= 1 && previousRating <= 5) {
+            bucketDeltas[previousRating - 1]--;
+            countDelta--;
+            sumDelta -= previousRating;
+        }
+        if (newRating != null && newRating >= 1 && newRating <= 5) {
+            bucketDeltas[newRating - 1]++;
+            countDelta++;
+            sumDelta += newRating;
+        }
+
+        Long bookId = savedReview.getBook().getId();
+        bookRepository.applyRatingDelta(bookId, countDelta, sumDelta,
+                bucketDeltas[0], bucketDeltas[1], bucketDeltas[2], bucketDeltas[3], bucketDeltas[4]);
+        bookRepository.refreshRatingAverage(bookId);
+        eventPublisher.publishEvent(new ReviewChangedEvent(bookId, savedReview.getUser().getId(), newRating));
+        return savedReview;
     }
 
     public Review findByBookAndUser(Long bookId, Long userId) {
         return reviewRepository.findByBookIdAndUserId(bookId, userId);
     }
+
+    /**
+     * Recompute all rating aggregates from the review table.
+     * Runs nightly to repair any drift (e.g. reviews edited directly in the database).
+     */
+    @Scheduled(cron = "${library.ratings.repair-cron:0 30 3 * * *}")
+    @Transactional
+    public void repairRatingAggregates() {
+        long start = System.currentTimeMillis();
+        int updated = bookRepository.recomputeRatingCounts();
+        bookRepository.recomputeRatingAverages();
+        logger.info("Rating aggregates recomputed for {} books in {} ms", updated, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Fill the aggregate columns once after they are added to an existing database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillRatingAggregates() {
+        if (bookRepository.existsByRatingCountIsNull()) {
+            logger.info("Books without rating aggregates found, running repair job");
+            repairRatingAggregates();
+        }
+    }
 }
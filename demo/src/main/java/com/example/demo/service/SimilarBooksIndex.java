@@ -0,0 +1,294 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ReviewLink;
+import com.example.demo.repository.ReviewRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Precomputed "readers also liked" table: the top neighbours of every book.
+ * A neighbour scores CO_REVIEW_WEIGHT for each reader who liked both books and
+ * CATEGORY_WEIGHT for each shared category (read from CategoryFacetIndex).
+ * The table is rebuilt nightly and updated incrementally when a review is saved,
+ * so the book page only does one map lookup. Events received while a rebuild reads the
+ * reviews are replayed on the new table before it is published.
+ */
+@Component
+public class SimilarBooksIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarBooksIndex.class);
+
+    public static final int MAX_NEIGHBOURS = 12;
+    // Reviews below this rating do not count as "liked"
+    private static final int LIKED_RATING = 3;
+    private static final int CO_REVIEW_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 1;
+    // Books taken from the same categories as candidates, newest first
+    private static final int CATEGORY_CANDIDATES = 100;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private CategoryFacetIndex categoryFacetIndex;
+
+    // Proxy of this bean, so that @Async and @Transactional apply to the scheduled rebuild
+    @Lazy
+    @Autowired
+    private SimilarBooksIndex self;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // userId -> (bookId -> rating) and bookId -> (userId -> rating)
+    private Map<Long, LongIntHashMap> booksByUser = new HashMap<>();
+    private Map<Long, LongIntHashMap> usersByBook = new HashMap<>();
+    private Map<Long, long[]> neighbours = new HashMap<>();
+    // Review and book events received while a rebuild runs, null otherwise; guarded by the lock
+    private List<Object> pendingEvents;
+    // Bumped on every change of the table (used in page ETags)
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Hands the nightly rebuild to the async executor: it reads every review and would otherwise
+     * hold the single scheduler thread the view count flush and the other jobs run on
+     */
+    @Scheduled(cron = "${library.similar.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        self.rebuildAsync();
+    }
+
+    @Async
+    public void rebuildAsync() {
+        self.rebuild();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingEvents = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<Long, LongIntHashMap> newBooksByUser = new HashMap<>();
+        Map<Long, LongIntHashMap> newUsersByBook = new HashMap<>();
+        try (Stream<ReviewLink> reviews = reviewRepository.streamReviewLinks()) {
+            reviews.forEach(review -> addReview(newBooksByUser, newUsersByBook,
+                    review.getUserId(), review.getBookId(), review.getRating()));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingEvents = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Map<Long, long[]> newNeighbours = new HashMap<>();
+        int replayed;
+        for (Long bookId : categoryFacetIndex.bookIds()) {
+            long[] top = computeNeighbours(bookId, newBooksByUser, newUsersByBook);
+            if (top.length > 0) {
+                newNeighbours.put(bookId, top);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            booksByUser = newBooksByUser;
+            usersByBook = newUsersByBook;
+            neighbours = newNeighbours;
+            // Ratings are idempotent puts, so replaying one the stream already saw is harmless
+            replayed = pendingEvents.size();
+            for (Object event : pendingEvents) {
+                if (event instanceof ReviewChangedEvent reviewEvent) {
+                    applyReview(reviewEvent);
+                } else if (event instanceof BookChangedEvent bookEvent) {
+                    neighbours.remove(bookEvent.getBookId());
+                }
+            }
+            pendingEvents = null;
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Similar books computed for {} books in {} ms ({} changes replayed)",
+                newNeighbours.size(), System.currentTimeMillis() - start, replayed);
+    }
+
+    /**
+     * A new or changed rating only affects the rated book and the other books of the same reader
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        if (event.getBookId() == null || event.getUserId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            applyReview(event);
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must hold the write lock
+    private void applyReview(ReviewChangedEvent event) {
+        addReview(booksByUser, usersByBook, event.getUserId(), event.getBookId(), event.getRating());
+        LongIntHashMap readerBooks = booksByUser.get(event.getUserId());
+        List<Long> affected = new ArrayList<>();
+        affected.add(event.getBookId());
+        if (readerBooks != null) {
+            readerBooks.forEach((bookId, rating) -> {
+                if (bookId != event.getBookId()) {
+                    affected.add(bookId);
+                }
+            });
+        }
+        for (Long bookId : affected) {
+            long[] top = computeNeighbours(bookId, booksByUser, usersByBook);
+            if (top.length > 0) {
+                neighbours.put(bookId, top);
+            } else {
+                neighbours.remove(bookId);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.isDeleted() && event.getBookId() != null) {
+            lock.writeLock().lock();
+            try {
+                // Other books may still list it until the next rebuild; callers skip missing books
+                neighbours.remove(event.getBookId());
+                if (pendingEvents != null) {
+                    pendingEvents.add(event);
+                }
+                version.incrementAndGet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Precomputed neighbours of a book, most similar first
+     */
+    public List<Long> neighboursOf(Long bookId, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] top = neighbours.get(bookId);
+            if (top == null) {
+                return List.of();
+            }
+            return Arrays.stream(top).limit(limit).boxed().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addReview(Map<Long, LongIntHashMap> byUser, Map<Long, LongIntHashMap> byBook,
+            Long userId, Long bookId, Integer rating) {
+        if (userId == null || bookId == null || rating == null) {
+            return;
+        }
+        byUser.computeIfAbsent(userId, id -> new LongIntHashMap(4)).put(bookId, rating);
+        byBook.computeIfAbsent(bookId, id -> new LongIntHashMap(4)).put(userId, rating);
+    }
+
+    private long[] computeNeighbours(Long bookId, Map<Long, LongIntHashMap> byUser,
+            Map<Long, LongIntHashMap> byBook) {
+        LongIntHashMap scores = new LongIntHashMap();
+
+        // Co-review: other books liked by the readers who liked this one
+        LongIntHashMap readers = byBook.get(bookId);
+        if (readers != null) {
+            readers.forEach((userId, rating) -> {
+                LongIntHashMap readerBooks = rating >= LIKED_RATING ? byUser.get(userId) : null;
+                if (readerBooks != null) {
+                    readerBooks.forEach((otherId, otherRating) -> {
+                        if (otherId != bookId && otherRating >= LIKED_RATING) {
+                            scores.addTo(otherId, CO_REVIEW_WEIGHT);
+                        }
+                    });
+                }
+            });
+        }
+
+        // Category overlap: bounded sample of books from the same categories, plus every co-reviewed book
+        long[] categories = categoryFacetIndex.categoriesOf(bookId);
+        if (categories.length > 0) {
+            RoaringBitmap sameCategories = categoryFacetIndex.match(
+                    Arrays.stream(categories).boxed().toList(), false);
+            for (Long otherId : CategoryFacetIndex.pageDescending(sameCategories, null, CATEGORY_CANDIDATES + 1)) {
+                if (otherId.longValue() != bookId) {
+                    scores.addTo(otherId, 0);
+                }
+            }
+            for (long otherId : scores.keys()) {
+                int shared = countShared(categories, categoryFacetIndex.categoriesOf(otherId));
+                scores.addTo(otherId, CATEGORY_WEIGHT * shared);
+            }
+        }
+
+        // Pack (score, id) into one long so a primitive sort gives the ranking; ids fit in 32 bits
+        long[] ranked = new long[scores.size()];
+        int[] count = { 0 };
+        scores.forEach((otherId, score) -> {
+            if (score > 0) {
+                ranked[count[0]++] = ((long) score << 32) | (otherId & 0xFFFFFFFFL);
+            }
+        });
+        long[] packed = Arrays.copyOf(ranked, count[0]);
+        Arrays.sort(packed);
+        int size = Math.min(MAX_NEIGHBOURS, packed.length);
+        long[] top = new long[size];
+        for (int i = 0; i < size; i++) {
+            top[i] = packed[packed.length - 1 - i] & 0xFFFFFFFFL;
+        }
+        return top;
+    }
+
+    private static int countShared(long[] categories, long[] otherCategories) {
+        int shared = 0;
+        for (long category : categories) {
+            for (long other : otherCategories) {
+                if (category == other) {
+                    shared++;
+                    break;
+                }
+            }
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import java.util.Arrays;
+
+/**
+ * Set of long values stored as one sorted array: 8 bytes per element and a binary search
+ * per lookup. Filled with add(), then frozen by seal() before the first contains().
+ * Used by the orphan reconciler to hold 64-bit hashes of every referenced path.
+ * Not thread-safe.
+ */
+final class SortedLongSet {
+
+    private long[] values;
+    private int size;
+    private boolean sealed;
+
+    SortedLongSet() {
+        this(1024);
+    }
+
+    SortedLongSet(int expectedSize) {
+        values = new long[Math.max(16, expectedSize)];
+    }
+
+    void add(long value) {
+        if (sealed) {
+            throw new IllegalStateException("Set is sealed");
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Sort, drop duplicates and trim the array; no more add() after this
+     */
+    void seal() {
+        if (sealed) {
+            return;
+        }
+        Arrays.sort(values, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        size = unique;
+        values = Arrays.copyOf(values, size);
+        sealed = true;
+    }
+
+    boolean contains(long value) {
+        if (!sealed) {
+            throw new IllegalStateException("Set is not sealed");
+        }
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a string. A collision can only make an orphan look referenced.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
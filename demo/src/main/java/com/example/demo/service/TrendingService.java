@@ -0,0 +1,218 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Time-decayed popularity of books ("trending").
+ * Views and downloads add weight * e^(lambda * (t - landmark)) to a per-book DoubleAdder
+ * (forward decay), so recording is lock-free and old activity never has to be decayed
+ * in place: comparing stored values at any moment is the same as comparing decayed scores.
+ * A scheduled job selects the top books into an immutable list that readers get in O(K),
+ * and the scores are written to a snapshot file so a restart keeps the ranking.
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+
+    public static final int MAX_TRENDING = 20;
+    private static final double VIEW_WEIGHT = 1.0;
+    private static final double DOWNLOAD_WEIGHT = 3.0;
+    // Scores are rebased to a new landmark before e^(lambda * t) gets anywhere near overflow
+    private static final double MAX_EXPONENT = 200;
+    // Decayed scores below this are dropped when rebasing
+    private static final double MIN_SCORE = 0.01;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    @Value("${library.trending.half-life-hours:24}")
+    private double halfLifeHours;
+
+    @Value("${library.trending.snapshot-file:uploads/.trending.snapshot}")
+    private String snapshotFile;
+
+    private final Map<Long, DoubleAdder> scores = new ConcurrentHashMap<>();
+    private final AtomicReference<List<Long>> topBooks = new AtomicReference<>(List.of());
+    // Bumped only when the ranking actually changes (used in page ETags)
+    private final AtomicLong version = new AtomicLong();
+    private volatile long landmarkMillis = System.currentTimeMillis();
+    private double lambdaPerMilli;
+
+    @PostConstruct
+    public void init() {
+        lambdaPerMilli = Math.log(2) / (halfLifeHours * 3_600_000d);
+        loadSnapshot();
+        refresh();
+    }
+
+    public void recordView(Long bookId) {
+        record(bookId, VIEW_WEIGHT);
+    }
+
+    public void recordDownload(Long bookId) {
+        record(bookId, DOWNLOAD_WEIGHT);
+    }
+
+    @org.springframework.transaction.event.TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.isDeleted() && event.getBookId() != null) {
+            scores.remove(event.getBookId());
+        }
+    }
+
+    /**
+     * Ids of the currently trending books, best first (at most MAX_TRENDING)
+     */
+    public List<Long> getTrendingBookIds(int limit) {
+        List<Long> current = topBooks.get();
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    private void record(Long bookId, double weight) {
+        if (bookId != null) {
+            scores.computeIfAbsent(bookId, id -> new DoubleAdder())
+                    .add(weight * Math.exp(lambdaPerMilli * (System.currentTimeMillis() - landmarkMillis)));
+        }
+    }
+
+    /**
+     * Recompute the top-K list with a bounded min-heap over all scores
+     */
+    @Scheduled(fixedDelayString = "${library.trending.refresh-interval-ms:30000}",
+            initialDelayString = "${library.trending.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (lambdaPerMilli * (System.currentTimeMillis() - landmarkMillis) > MAX_EXPONENT) {
+            rebase();
+        }
+
+        PriorityQueue<Map.Entry<Long, Double>> heap =
+                new PriorityQueue<>(MAX_TRENDING + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Long, DoubleAdder> entry : scores.entrySet()) {
+            double score = entry.getValue().sum();
+            if (heap.size() < MAX_TRENDING || score > heap.peek().getValue()) {
+                heap.offer(Map.entry(entry.getKey(), score));
+                if (heap.size() > MAX_TRENDING) {
+                    heap.poll();
+                }
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(heap);
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()));
+        List<Long> newTop = ranked.stream().map(Map.Entry::getKey).toList();
+        if (!newTop.equals(topBooks.getAndSet(newTop))) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Persist the scores so a restart does not lose the ranking
+     */
+    @Scheduled(fixedDelayString = "${library.trending.snapshot-interval-ms:300000}",
+            initialDelayString = "${library.trending.snapshot-interval-ms:300000}")
+    public void saveSnapshot() {
+        Path target = Paths.get(snapshotFile).toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), "trending", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                List<Map.Entry<Long, Double>> entries = new ArrayList<>();
+                scores.forEach((bookId, adder) -> entries.add(Map.entry(bookId, adder.sum())));
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(landmarkMillis);
+                out.writeInt(entries.size());
+                for (Map.Entry<Long, Double> entry : entries) {
+                    out.writeLong(entry.getKey());
+                    out.writeDouble(entry.getValue());
+                }
+            }
+            // Readers never see a half-written file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Trending snapshot saved: {} books", scores.size());
+        } catch (IOException e) {
+            logger.warn("Failed to save trending snapshot {}: {}", target, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        saveSnapshot();
+    }
+
+    private void loadSnapshot() {
+        Path source = Paths.get(snapshotFile).toAbsolutePath();
+        if (!Files.exists(source)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                logger.warn("Ignoring trending snapshot {} with unknown version", source);
+                return;
+            }
+            long savedLandmark = in.readLong();
+            // Re-express the saved values relative to the current landmark
+            double factor = Math.exp(lambdaPerMilli * (savedLandmark - landmarkMillis));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long bookId = in.readLong();
+                double score = in.readDouble() * factor;
+                if (score >= MIN_SCORE) {
+                    scores.computeIfAbsent(bookId, id -> new DoubleAdder()).add(score);
+                }
+            }
+            logger.info("Trending snapshot loaded: {} books", scores.size());
+        } catch (IOException e) {
+            logger.warn("Failed to load trending snapshot {}: {}", source, e.getMessage());
+        }
+    }
+
+    // Move the landmark to now, scaling every stored value down accordingly.
+    // The landmark moves first, so a view racing with the rebase is at worst scaled down
+    // (effectively lost), never inflated; that is harmless for a popularity ranking.
+    private synchronized void rebase() {
+        long oldLandmark = landmarkMillis;
+        long newLandmark = System.currentTimeMillis();
+        landmarkMillis = newLandmark;
+        double factor = Math.exp(-lambdaPerMilli * (newLandmark - oldLandmark));
+        for (Long bookId : scores.keySet()) {
+            scores.compute(bookId, (id, adder) -> {
+                double score = adder == null ? 0 : adder.sum() * factor;
+                if (score < MIN_SCORE) {
+                    return null;
+                }
+                DoubleAdder rebased = new DoubleAdder();
+                rebased.add(score);
+                return rebased;
+            });
+        }
+        logger.info("Trending scores rebased, {} books kept", scores.size());
+    }
+}
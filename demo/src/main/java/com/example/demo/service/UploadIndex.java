@@ -0,0 +1,291 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the book files in uploads/ (relative path -> size, SHA-256, modification time),
+ * kept up to date by FileStorageService and saved to a small binary file, so storage
+ * statistics never walk the directory tree. Dot files and dot directories (caches, snapshots,
+ * temp files) are not indexed.
+ * Built by one walk when the index file is missing or was not written at a clean shutdown
+ * (changes since the last periodic save are lost in a crash); after that only changes are applied.
+ */
+@Component
+public class UploadIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadIndex.class);
+
+    private static final int INDEX_VERSION = 2;
+    private static final int DIGEST_BYTES = 32;
+
+    @Value("${library.uploads.index-file:uploads/.upload-index}")
+    private String indexFile;
+
+    /**
+     * One indexed file. The digest is null for files stored before content addressing.
+     */
+    public static final class Entry {
+        private final long size;
+        private final long modified;
+        private final byte[] digest;
+
+        Entry(long size, long modified, byte[] digest) {
+            this.size = size;
+            this.modified = modified;
+            this.digest = digest;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public String getDigest() {
+            return digest != null ? HexFormat.of().formatHex(digest) : null;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long totalBytes = 0;
+    private boolean dirty = false;
+    private volatile boolean loaded = false;
+
+    @PostConstruct
+    public void init() {
+        Path source = Paths.get(indexFile).toAbsolutePath();
+        if (!Files.exists(source)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readInt() != INDEX_VERSION) {
+                logger.warn("Ignoring upload index {} with unknown version", source);
+                return;
+            }
+            if (!in.readBoolean()) {
+                logger.warn("Upload index {} was not saved at shutdown, it will be rebuilt", source);
+                return;
+            }
+            int count = in.readInt();
+            synchronized (this) {
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    long size = in.readLong();
+                    long modified = in.readLong();
+                    byte[] digest = null;
+                    if (in.readBoolean()) {
+                        digest = new byte[DIGEST_BYTES];
+                        in.readFully(digest);
+                    }
+                    putEntry(name, new Entry(size, modified, digest));
+                }
+                dirty = true;
+            }
+            loaded = true;
+            logger.info("Upload index loaded: {} files, {} bytes", count, totalBytes);
+            // Rewritten unmarked right away: a crash from now on must not leave a file marked clean
+            save();
+        } catch (IOException e) {
+            synchronized (this) {
+                entries.clear();
+                totalBytes = 0;
+            }
+            logger.warn("Failed to load upload index {}, it will be rebuilt: {}", source, e.getMessage());
+        }
+    }
+
+    /**
+     * False until the index was read from disk or rebuilt
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Record a file written under the uploads directory
+     * @param name Path relative to the uploads directory, with '/' separators
+     * @param digest Hex SHA-256, or null if unknown
+     */
+    public synchronized void put(String name, long size, long modified, String digest) {
+        if (!isIndexed(name)) {
+            return;
+        }
+        putEntry(name, new Entry(size, modified, digest != null ? HexFormat.of().parseHex(digest) : null));
+        dirty = true;
+    }
+
+    public synchronized void remove(String name) {
+        Entry removed = entries.remove(name);
+        if (removed != null) {
+            totalBytes -= removed.size;
+            dirty = true;
+        }
+    }
+
+    public synchronized Entry get(String name) {
+        return entries.get(name);
+    }
+
+    public synchronized int getFileCount() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Replace the index with one walk over the uploads directory
+     */
+    public void rebuild(Path root) throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, Entry> found = new HashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                // Caches live in dot directories and can hold many files: do not descend
+                return dir.equals(root) || isIndexed(nameOf(root, dir))
+                        ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String name = nameOf(root, file);
+                if (attributes.isRegularFile() && isIndexed(name)) {
+                    String digest = FileStorageService.digestOf(name);
+                    found.put(name, new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                            digest != null ? HexFormat.of().parseHex(digest) : null));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Skipping {} in upload index: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        synchronized (this) {
+            entries.clear();
+            totalBytes = 0;
+            found.forEach(this::putEntry);
+            dirty = true;
+        }
+        loaded = true;
+        logger.info("Upload index rebuilt in {} ms: {} files, {} bytes", System.currentTimeMillis() - start,
+                found.size(), getTotalBytes());
+        save();
+    }
+
+    /**
+     * Write the index if it changed since the last save
+     */
+    @Scheduled(fixedDelayString = "${library.uploads.index-save-interval-ms:60000}",
+            initialDelayString = "${library.uploads.index-save-interval-ms:60000}")
+    public void save() {
+        write(false);
+    }
+
+    /**
+     * Write the index marked clean: only an index saved here is trusted at the next startup
+     */
+    @PreDestroy
+    public void saveOnShutdown() {
+        write(true);
+    }
+
+    private void write(boolean cleanShutdown) {
+        List<Map.Entry<String, Entry>> snapshot;
+        synchronized (this) {
+            // Never write a partial index before it was loaded or rebuilt
+            if (!loaded || (!dirty && !cleanShutdown)) {
+                return;
+            }
+            snapshot = new ArrayList<>(entries.entrySet());
+            dirty = false;
+        }
+        Path target = Paths.get(indexFile).toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), ".upload-index", ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(INDEX_VERSION);
+                    out.writeBoolean(cleanShutdown);
+                    out.writeInt(snapshot.size());
+                    for (Map.Entry<String, Entry> entry : snapshot) {
+                        Entry value = entry.getValue();
+                        out.writeUTF(entry.getKey());
+                        out.writeLong(value.size);
+                        out.writeLong(value.modified);
+                        out.writeBoolean(value.digest != null);
+                        if (value.digest != null) {
+                            out.write(value.digest);
+                        }
+                    }
+                }
+                // Readers never see a half-written file
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            logger.debug("Upload index saved: {} files", snapshot.size());
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            logger.warn("Failed to save upload index {}: {}", target, e.getMessage());
+        }
+    }
+
+    /**
+     * Relative name of a file under root, with '/' separators
+     */
+    static String nameOf(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    // Book files only: no dot files, nothing inside dot directories
+    private static boolean isIndexed(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (String part : name.split("/")) {
+            if (part.startsWith(".")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void putEntry(String name, Entry entry) {
+        Entry previous = entries.put(name, entry);
+        totalBytes += entry.size - (previous != null ? previous.size : 0L);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookFileRepository;
+import com.example.demo.repository.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Moves the files stored flat in uploads/ (UUID_name.pdf, or digest names from before sharding)
+ * into the sharded content-addressed layout and points their BookFile rows at the new names.
+ * Files are hashed and linked in parallel; each file is switched over in its own transaction
+ * and only deleted afterwards, so downloads keep working while the migration runs.
+ * Files no BookFile refers to are left where they are (see the orphan reconciler).
+ */
+@Service
+public class UploadMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadMigrationService.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UploadIndex uploadIndex;
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private BookFileRepository bookFileRepository;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${library.uploads.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    @Value("${library.uploads.migrate-threads:4}")
+    private int threads;
+
+    /**
+     * Outcome counts of one migration run
+     */
+    public static final class Report {
+        private final AtomicInteger migrated = new AtomicInteger();
+        private final AtomicInteger deduplicated = new AtomicInteger();
+        private final AtomicInteger unreferenced = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        public int getMigrated() {
+            return migrated.get();
+        }
+
+        /** Migrated files whose content was already stored under its digest */
+        public int getDeduplicated() {
+            return deduplicated.get();
+        }
+
+        public int getUnreferenced() {
+            return unreferenced.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        @Override
+        public String toString() {
+            return "migrated=" + migrated + ", deduplicated=" + deduplicated
+                    + ", unreferenced=" + unreferenced + ", failed=" + failed;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Async
+    public void onStartup() {
+        try {
+            if (!uploadIndex.isLoaded()) {
+                uploadIndex.rebuild(fileStorageService.getFileStorageLocation());
+            }
+            if (migrateOnStartup) {
+                migrate();
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Upload layout check failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Migrate every flat file in uploads/ with a bounded number of files in flight
+     */
+    public Report migrate() throws IOException {
+        Path root = fileStorageService.getFileStorageLocation();
+        Report report = new Report();
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        Semaphore inFlight = new Semaphore(Math.max(1, threads) * 4);
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                // Dot files are caches, snapshots and temp files; directories are shards
+                if (name.startsWith(".") || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                inFlight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        migrateFile(name, report);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (report.getMigrated() > 0) {
+            // Rows got their content digests: count the blob references again
+            blobStoreService.repairReferenceCounts();
+            uploadIndex.save();
+        }
+        if (report.getMigrated() + report.getUnreferenced() + report.getFailed() > 0) {
+            logger.info("📦 Upload migration finished in {} ms: {}", System.currentTimeMillis() - start, report);
+        }
+        return report;
+    }
+
+    private void migrateFile(String name, Report report) {
+        try {
+            if (!bookFileRepository.existsByFilePath(name) && !storedBlobRepository.existsByLocalName(name)) {
+                report.unreferenced.incrementAndGet();
+                return;
+            }
+
+            FileStorageService.StoredContent content = fileStorageService.importFile(name);
+            String newName = content.getFileName();
+            transactionTemplate.executeWithoutResult(status -> {
+                storedBlobRepository.updateLocalName(name, newName);
+                bookFileRepository.updateStorage(name, newName, content.getDigest());
+            });
+            // Existing local copies are never replaced by register(), the file is referenced
+            blobStoreService.register(new FileStorageService.StoredContent(content.getDigest(), newName,
+                    name, content.getSize(), false), null);
+            fileStorageService.deleteFile(name);
+
+            report.migrated.incrementAndGet();
+            if (!content.isCreated()) {
+                report.deduplicated.incrementAndGet();
+            }
+        } catch (Exception e) {
+            report.failed.incrementAndGet();
+            logger.warn("⚠️ Could not migrate {}: {}", name, e.getMessage());
+        }
+    }
+}
@@ -2,7 +2,11 @@ package com.example.demo.service;
 
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
@@ -10,6 +14,8 @@ import java.util.Optional;
 @Service
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -34,7 +40,41 @@ public class UserService {
     }
 
     public User findByEmail(String email) {
-        return userRepository.findByEmail(email);
+        String normalizedEmail = User.normalizeEmail(email);
+        return normalizedEmail != null ? userRepository.findByEmail(normalizedEmail) : null;
+    }
+
+    /**
+     * Check login credentials with a single indexed lookup by email
+     * @return The matching user, or null if the email is unknown or the password is wrong
+     */
+    public User authenticate(String email, String password) {
+        User user = findByEmail(email);
+        // Basic check - in real app password should be hashed
+        if (user == null || password == null || !password.equals(user.getPassword())) {
+            return null;
+        }
+        return user;
+    }
+
+    /**
+     * Reference to a user by id without loading it (e.g. to set Review.user)
+     */
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void normalizeStoredEmails() {
+        try {
+            int updated = userRepository.normalizeStoredEmails();
+            if (updated > 0) {
+                logger.info("Normalized {} stored user emails", updated);
+            }
+        } catch (Exception e) {
+            // e.g. two accounts that only differ by case; login still works on case-insensitive collations
+            logger.warn("Could not normalize stored user emails: {}", e.getMessage());
+        }
     }
 
     public User save(User user) {
@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind view counter.
+ * Page views only bump an in-memory counter per book; a scheduled job takes the
+ * accumulated deltas and writes them with one batched "view_count = view_count + ?" UPDATE
+ * in a single transaction, so a page view never causes a synchronous database write,
+ * concurrent views are never lost and a failed flush is retried without double counting.
+ */
+@Service
+public class ViewCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViewCountService.class);
+
+    private static final String INCREMENT_SQL =
+            "UPDATE book SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Only books viewed since the last flush: the flush removes each entry atomically as it takes it
+    private final Map<Long, Long> pendingViews = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    public void recordView(Long bookId) {
+        if (bookId != null) {
+            pendingViews.merge(bookId, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Views recorded for a book that are not yet written to the database
+     */
+    public long getPendingViews(Long bookId) {
+        return pendingViews.getOrDefault(bookId, 0L);
+    }
+
+    @Scheduled(fixedDelayString = "${library.views.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            List<Object[]> batch = new ArrayList<>();
+            for (Long bookId : pendingViews.keySet()) {
+                Long delta = pendingViews.remove(bookId);
+                if (delta != null && delta != 0) {
+                    batch.add(new Object[] { delta, bookId });
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                // All or nothing: a partly committed batch would be counted twice on retry
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INCREMENT_SQL, batch));
+                logger.debug("Flushed view counts for {} books", batch.size());
+            } catch (Exception e) {
+                // Put the deltas back so they are retried on the next flush
+                for (Object[] row : batch) {
+                    pendingViews.merge((Long) row[1], (Long) row[0], Long::sum);
+                }
+                logger.warn("Failed to flush view counts for {} books, will retry: {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("Flushing pending view counts before shutdown");
+        flush();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookApiControllerTest {
+
+    @Test
+    void exportIsNotCutByTheAsyncRequestTimeout() throws Exception {
+        for (String file : new String[] { "application.properties", "application-prod.properties" }) {
+            StandardEnvironment environment = new StandardEnvironment();
+            environment.getPropertySources().addFirst(new ResourcePropertySource(new ClassPathResource(file)));
+
+            Duration asyncTimeout = DurationStyle.detectAndParse(
+                    environment.getRequiredProperty("spring.mvc.async.request-timeout"));
+            long exportSeconds = environment.getRequiredProperty("library.api.export-timeout-seconds", Long.class);
+
+            // Tomcat's default of 30s would abort large exports
+            assertTrue(asyncTimeout.getSeconds() > 30, file + ": " + asyncTimeout);
+            assertTrue(asyncTimeout.getSeconds() >= exportSeconds, file + ": " + asyncTimeout);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.service;
+
+import java.util.Arrays;
+
+/**
+ * Minimal timing helper for the benchmarks in this package. Benchmarks are skipped in a normal
+ * build; run them with: mvn test -Dbenchmark=true -Dtest='*Benchmark'
+ */
+final class Benchmark {
+
+    /** System property that enables the benchmarks */
+    static final String ENABLED_PROPERTY = "benchmark";
+
+    interface Operation {
+        void run(int iteration) throws Exception;
+    }
+
+    private Benchmark() {
+    }
+
+    /**
+     * Run the operation warmup times untimed, then iterations times timed
+     * @return Sorted durations in nanoseconds
+     */
+    static long[] measure(int warmup, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            operation.run(i);
+        }
+        long[] durations = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run(warmup + i);
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        return durations;
+    }
+
+    static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    static String summary(long[] sorted) {
+        return String.format("p50=%.1f us, p99=%.1f us, max=%.1f us",
+                percentile(sorted, 0.50) / 1000.0, percentile(sorted, 0.99) / 1000.0,
+                sorted[sorted.length - 1] / 1000.0);
+    }
+
+    static void report(String name, String detail) {
+        System.out.printf("[benchmark] %-40s %s%n", name, detail);
+    }
+}
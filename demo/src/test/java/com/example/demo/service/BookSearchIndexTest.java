@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        save(1L, "Lịch sử Việt Nam", "Phạm Minh", null);
+        save(2L, "Tiếng Việt thực hành", "Nguyễn An", "Sách tiếng việt cho sinh viên");
+        save(3L, "Lập trình Java", "Trần Bình", "Java cơ bản, có bài tập Việt hoá");
+        save(4L, "Java nâng cao", "Lê Việt", null);
+    }
+
+    @Test
+    void matchesEveryTermWithoutAccents() {
+        assertEquals(List.of(3L), index.search("lap trinh java", 10));
+        assertEquals(List.of(), index.search("java python", 10));
+        assertEquals(List.of(), index.search("  ", 10));
+    }
+
+    @Test
+    void ranksTitleAboveAuthorAboveDescription() {
+        // Title hits (2, 1), then author (4), then description (3); newest first on ties
+        assertEquals(List.of(2L, 1L, 4L, 3L), index.search("viet", 10));
+        assertEquals(List.of(2L, 1L), index.search("viet", 2));
+    }
+
+    @Test
+    void intersectsListsInAnyInsertionOrder() {
+        // Ids arriving out of order still end up sorted in the posting lists
+        save(10L, "Java cho người mới", "An", null);
+        save(7L, "Java Việt", "An", null);
+        save(5L, "Java web", "An", null);
+
+        assertEquals(List.of(7L, 4L, 3L), index.search("java viet", 10));
+        // Book 3 also has "java" in its description
+        assertEquals(List.of(3L, 10L, 7L, 5L, 4L), index.search("java", 10));
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        save(3L, "Lập trình Kotlin", "Trần Bình", null);
+        assertEquals(List.of(4L), index.search("java", 10));
+        assertEquals(List.of(3L), index.search("kotlin", 10));
+
+        index.onBookChanged(BookChangedEvent.deleted(4L));
+        assertEquals(List.of(), index.search("java", 10));
+        assertEquals(List.of(2L, 1L), index.search("viet", 10));
+    }
+
+    @Test
+    void commonTermsKeepTheBestNewestResults() {
+        List<Long> expected = new ArrayList<>();
+        for (long id = 100; id < 30_100; id++) {
+            save(id, "Tuyển tập " + id, "Tác giả", null);
+            if (id >= 30_095) {
+                expected.add(0, id);
+            }
+        }
+        // Every match has the same score: the newest books win, and the walk stops early
+        assertEquals(expected, index.search("tuyen tap", 5));
+        assertEquals(List.of(20_000L), index.search("tuyen 20000", 5));
+    }
+
+    private void save(Long id, String title, String author, String description) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setDescription(description);
+        index.onBookChanged(BookChangedEvent.saved(book));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BookServiceTest {
+
+    // 25 ranked books, ids not in id order
+    private static final List<Long> RANKING = LongStream.rangeClosed(1, 25).map(i -> 1000 - i * 7).boxed().toList();
+    private static final int PAGE_SIZE = 10;
+
+    @Test
+    void keywordCursorsWalkTheRankingPageByPage() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            int from = cursor != null ? BookService.rankOffsetAfter(RANKING, cursor) : 0;
+            int to = Math.min(from + PAGE_SIZE, RANKING.size());
+            seen.addAll(RANKING.subList(from, to));
+            // Built like findCatalogPage does
+            cursor = to < RANKING.size() ? to + "." + RANKING.get(to - 1) : null;
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(RANKING, seen);
+    }
+
+    @Test
+    void middleAndLastPagesResumeAfterTheCursor() {
+        assertEquals(10, BookService.rankOffsetAfter(RANKING, "10." + RANKING.get(9)));
+        assertEquals(20, BookService.rankOffsetAfter(RANKING, "20." + RANKING.get(19)));
+        // Cursor on the last book: the next page is empty
+        assertEquals(25, BookService.rankOffsetAfter(RANKING, "25." + RANKING.get(24)));
+    }
+
+    @Test
+    void staleCursorsFollowTheBookOrKeepTheOffset() {
+        // A new book ranked first: the last shown book moved one position down
+        List<Long> shifted = new ArrayList<>(RANKING);
+        shifted.add(0, 5000L);
+        assertEquals(11, BookService.rankOffsetAfter(shifted, "10." + RANKING.get(9)));
+
+        // The last shown book left the ranking: resume at the same offset
+        List<Long> removed = new ArrayList<>(RANKING);
+        removed.remove(9);
+        assertEquals(10, BookService.rankOffsetAfter(removed, "10." + RANKING.get(9)));
+    }
+
+    @Test
+    void plainIdCursorsAreLookedUp() {
+        assertEquals(10, BookService.rankOffsetAfter(RANKING, String.valueOf(RANKING.get(9))));
+        assertEquals(-1, BookService.rankOffsetAfter(RANKING, "123456"));
+    }
+
+    @Test
+    void garbledCursorsEndTheListing() {
+        assertEquals(-1, BookService.rankOffsetAfter(RANKING, "x." + RANKING.get(9)));
+        assertEquals(-1, BookService.rankOffsetAfter(RANKING, "0." + RANKING.get(0)));
+        assertEquals(-1, BookService.rankOffsetAfter(RANKING, "26." + RANKING.get(24)));
+        assertEquals(-1, BookService.rankOffsetAfter(RANKING, "-3.7"));
+        assertEquals(-1, BookService.rankOffsetAfter(RANKING, "garbage"));
+    }
+}
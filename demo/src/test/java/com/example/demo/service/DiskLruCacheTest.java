@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskLruCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void evictsLeastRecentlyUsedFirst() throws Exception {
+        DiskLruCache cache = new DiskLruCache(directory, 30);
+        put(cache, "a");
+        put(cache, "b");
+        put(cache, "c");
+        cache.get("a");
+        put(cache, "d");
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(30, cache.getUsedBytes());
+    }
+
+    @Test
+    void accessOrderSurvivesReopen() throws Exception {
+        DiskLruCache cache = new DiskLruCache(directory, 30);
+        put(cache, "a");
+        put(cache, "b");
+        put(cache, "c");
+        cache.get("a");
+        cache.close();
+        assertTrue(Files.exists(directory.resolve(".lru-index")));
+
+        DiskLruCache reopened = new DiskLruCache(directory, 30);
+        assertEquals(3, reopened.size());
+        put(reopened, "d");
+
+        assertNull(reopened.get("b"));
+        assertNotNull(reopened.get("a"));
+        assertNotNull(reopened.get("c"));
+        assertTrue(Files.exists(directory.resolve(".lru-index")), "the index is not taken for a stray file");
+    }
+
+    @Test
+    void entriesWrittenAfterTheLastSaveAreNewest() throws Exception {
+        DiskLruCache cache = new DiskLruCache(directory, 30);
+        put(cache, "a");
+        put(cache, "b");
+        cache.close();
+        put(cache, "c");
+        cache.get("a");
+        // No close: the index still lists a, b
+
+        DiskLruCache reopened = new DiskLruCache(directory, 30);
+        put(reopened, "d");
+
+        assertNull(reopened.get("a"));
+        assertNotNull(reopened.get("b"));
+        assertNotNull(reopened.get("c"));
+    }
+
+    private static void put(DiskLruCache cache, String key) throws Exception {
+        cache.put(key, out -> out.write(new byte[10]));
+    }
+}
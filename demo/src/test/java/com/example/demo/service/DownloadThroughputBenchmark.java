@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of sending a 40 MB book file to a loopback socket:
+ * the previous path (UrlResource stream copied through a heap buffer), the
+ * FileDownloadService fallback (FileChannel.transferTo into the response stream) and the
+ * zero-copy path Tomcat's sendfile takes (FileChannel.transferTo into the socket channel).
+ * Also reports the heap allocated per download.
+ */
+@EnabledIfSystemProperty(named = Benchmark.ENABLED_PROPERTY, matches = "true")
+class DownloadThroughputBenchmark {
+
+    private static final int FILE_SIZE = 40 * 1024 * 1024;
+    private static final int DOWNLOADS = 20;
+
+    @TempDir
+    Path directory;
+
+    private interface Sender {
+        void send(Path file, SocketChannel channel, OutputStream out) throws Exception;
+    }
+
+    @Test
+    void zeroCopyIsNotSlowerThanTheStreamCopy() throws Exception {
+        Path file = directory.resolve("book.pdf");
+        byte[] content = new byte[FILE_SIZE];
+        new Random(1).nextBytes(content);
+        Files.write(file, content);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            Thread drain = startDrain(server);
+
+            double streamCopy = run("UrlResource stream copy", file, server, (path, channel, out) -> {
+                try (InputStream in = path.toUri().toURL().openStream()) {
+                    in.transferTo(out);
+                }
+                out.flush();
+            });
+            run("transferTo into the response stream", file, server, (path, channel, out) -> {
+                FileDownloadService.transfer(path, 0, FILE_SIZE, out);
+                out.flush();
+            });
+            double sendfile = run("transferTo into the socket (sendfile)", file, server, (path, channel, out) -> {
+                try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+                    long position = 0;
+                    while (position < FILE_SIZE) {
+                        position += source.transferTo(position, FILE_SIZE - position, channel);
+                    }
+                }
+            });
+            drain.interrupt();
+
+            // Loopback is noisy: only require that zero-copy is not clearly worse
+            assertTrue(sendfile > streamCopy * 0.8, "sendfile " + sendfile + " MB/s vs copy " + streamCopy + " MB/s");
+        }
+    }
+
+    // One connection per download, like a browser; returns the median throughput in MB/s
+    private static double run(String name, Path file, ServerSocketChannel server, Sender sender) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] allocated = { 0 };
+        long[] durations = Benchmark.measure(2, DOWNLOADS, i -> {
+            try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                Socket socket = channel.socket();
+                long before = threads.getCurrentThreadAllocatedBytes();
+                sender.send(file, channel, socket.getOutputStream());
+                allocated[0] = threads.getCurrentThreadAllocatedBytes() - before;
+            }
+        });
+        double megabytesPerSecond = FILE_SIZE / 1_048_576.0 / (Benchmark.percentile(durations, 0.5) / 1e9);
+        Benchmark.report(name, String.format("%.0f MB/s (median of %d x 40 MB), %d KB heap allocated per download",
+                megabytesPerSecond, DOWNLOADS, allocated[0] / 1024));
+        return megabytesPerSecond;
+    }
+
+    // Reads and discards everything sent to the server socket
+    private static Thread startDrain(ServerSocketChannel server) {
+        Thread thread = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            while (!Thread.currentThread().isInterrupted()) {
+                try (SocketChannel client = server.accept()) {
+                    while (client.read(buffer) >= 0) {
+                        buffer.clear();
+                    }
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }, "benchmark-drain");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDownloadServiceTest {
+
+    private static final String ETAG = "\"a-1\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private final FileDownloadService service = new FileDownloadService();
+
+    @Test
+    void parsesClosedAndOpenRanges() {
+        assertRange(0, 99, FileDownloadService.parseRange("bytes=0-99", 1000));
+        assertRange(500, 999, FileDownloadService.parseRange("bytes=500-", 1000));
+        assertRange(0, 0, FileDownloadService.parseRange(" bytes=0-0 ", 1000));
+        // The end is clamped to the last byte
+        assertRange(900, 999, FileDownloadService.parseRange("bytes=900-5000", 1000));
+    }
+
+    @Test
+    void parsesSuffixRanges() {
+        assertRange(900, 999, FileDownloadService.parseRange("bytes=-100", 1000));
+        // A suffix longer than the file selects the whole file
+        assertRange(0, 999, FileDownloadService.parseRange("bytes=-5000", 1000));
+        assertNull(FileDownloadService.parseRange("bytes=-0", 1000));
+    }
+
+    @Test
+    void rejectsInvalidAndUnsatisfiableRanges() {
+        assertNull(FileDownloadService.parseRange("bytes=5-3", 1000));
+        assertNull(FileDownloadService.parseRange("bytes=1000-", 1000));
+        assertNull(FileDownloadService.parseRange("bytes=-", 1000));
+        assertNull(FileDownloadService.parseRange("bytes=0-1,5-9", 1000));
+        assertNull(FileDownloadService.parseRange("items=0-1", 1000));
+        assertNull(FileDownloadService.parseRange("bytes=99999999999999999999-", 1000));
+    }
+
+    @Test
+    void nothingIsSatisfiableInAnEmptyFile() {
+        assertNull(FileDownloadService.parseRange("bytes=0-", 0));
+        assertNull(FileDownloadService.parseRange("bytes=-10", 0));
+    }
+
+    @Test
+    void onlyWellFormedSingleRangesAreUnsatisfiable() {
+        assertTrue(FileDownloadService.isValidRange("bytes=1000-"));
+        assertTrue(FileDownloadService.isValidRange("bytes=-0"));
+        assertTrue(FileDownloadService.isValidRange("bytes=3-3"));
+        assertFalse(FileDownloadService.isValidRange("bytes=5-3"));
+        assertFalse(FileDownloadService.isValidRange("bytes=0-1,5-9"));
+        assertFalse(FileDownloadService.isValidRange("bytes=-"));
+    }
+
+    @Test
+    void ifRangeNeedsAStrongEtagOrTheExactDate() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertTrue(FileDownloadService.ifRangeMatches(request, ETAG, LAST_MODIFIED));
+
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        assertTrue(FileDownloadService.ifRangeMatches(request, ETAG, LAST_MODIFIED));
+
+        assertFalse(FileDownloadService.ifRangeMatches(withIfRange("\"b-2\""), ETAG, LAST_MODIFIED));
+        assertFalse(FileDownloadService.ifRangeMatches(withIfRange("W/" + ETAG), ETAG, LAST_MODIFIED));
+        assertTrue(FileDownloadService.ifRangeMatches(withIfRange(LAST_MODIFIED), ETAG, LAST_MODIFIED));
+        assertFalse(FileDownloadService.ifRangeMatches(withIfRange(LAST_MODIFIED - 1000), ETAG, LAST_MODIFIED));
+        assertFalse(FileDownloadService.ifRangeMatches(withIfRange("yesterday"), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void servesTheRequestedRangeWith206() throws Exception {
+        Path file = write("abcdefghij");
+        MockHttpServletResponse response = serve(file, "bytes=2-4");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("cde", response.getContentAsString());
+        assertEquals(3, response.getContentLengthLong());
+    }
+
+    @Test
+    void answersUnsatisfiableRangesWith416() throws Exception {
+        Path file = write("abcdefghij");
+        MockHttpServletResponse response = serve(file, "bytes=20-");
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void ignoresInvalidRanges() throws Exception {
+        Path file = write("abcdefghij");
+        MockHttpServletResponse response = serve(file, "bytes=5-3");
+
+        assertEquals(200, response.getStatus());
+        assertEquals("abcdefghij", response.getContentAsString());
+    }
+
+    @Test
+    void servesEmptyFiles() throws Exception {
+        Path file = write("");
+        MockHttpServletResponse full = serve(file, null);
+        assertEquals(200, full.getStatus());
+        assertEquals(0, full.getContentLengthLong());
+        assertArrayEquals(new byte[0], full.getContentAsByteArray());
+
+        MockHttpServletResponse ranged = serve(file, "bytes=0-");
+        assertEquals(416, ranged.getStatus());
+        assertEquals("bytes */0", ranged.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void staleIfRangeGetsTheWholeFile() throws Exception {
+        Path file = write("abcdefghij");
+        MockHttpServletRequest request = request("bytes=2-4");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve(file, "application/pdf", null, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("abcdefghij", response.getContentAsString());
+    }
+
+    @Test
+    void answersMatchingEtagWith304() throws Exception {
+        Path file = write("abcdefghij");
+        MockHttpServletResponse first = serve(file, null);
+
+        MockHttpServletRequest request = request(null);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        service.serve(file, "application/pdf", null, request, second);
+
+        assertEquals(304, second.getStatus());
+        assertEquals(0, second.getContentAsByteArray().length);
+    }
+
+    @Test
+    void refusesSampleSigningSecrets() {
+        ReflectionTestUtils.setField(service, "accelSecret", "change_me_download");
+        assertThrows(IllegalStateException.class, service::checkAccelSecret);
+
+        ReflectionTestUtils.setField(service, "accelSecret", "");
+        service.checkAccelSecret();
+        ReflectionTestUtils.setField(service, "accelSecret", "4f9c2e7a1b");
+        service.checkAccelSecret();
+    }
+
+    private static void assertRange(long start, long end, FileDownloadService.ByteRange range) {
+        assertEquals(start, range.getStart());
+        assertEquals(end, range.getEnd());
+        assertEquals(end - start + 1, range.getLength());
+    }
+
+    private static MockHttpServletRequest withIfRange(Object value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_RANGE, value);
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books/download/1");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse serve(Path file, String range) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve(file, "application/pdf", null, request(range), response);
+        return response;
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = Files.createTempFile(directory, "book", ".pdf");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Memory and latency of FuzzyTitleIndex at 500k titles. Titles and authors are made of
+ * Vietnamese-like syllables with a skewed frequency, so some trigrams are very common;
+ * queries are existing titles typed without diacritics and with one typo.
+ */
+@EnabledIfSystemProperty(named = Benchmark.ENABLED_PROPERTY, matches = "true")
+class FuzzyTitleBenchmark {
+
+    private static final int BOOKS = 500_000;
+    private static final int QUERIES = 2_000;
+
+    private static final String[] ONSETS = { "", "b", "c", "ch", "d", "đ", "g", "gi", "h", "k", "kh", "l", "m",
+            "n", "ng", "nh", "ph", "qu", "r", "s", "t", "th", "tr", "v", "x" };
+    private static final String[] NUCLEI = { "a", "à", "á", "ả", "ã", "ạ", "ă", "â", "e", "ê", "ế", "i", "ì", "o",
+            "ô", "ố", "ơ", "ờ", "u", "ư", "ữ", "y", "iê", "iệ", "ươ", "uô" };
+    private static final String[] CODAS = { "", "c", "ch", "m", "n", "ng", "nh", "p", "t" };
+
+    @Test
+    void boundedMemoryAndLatencyAt500kTitles() throws Exception {
+        Random random = new Random(7);
+        List<String> syllables = new ArrayList<>();
+        for (String onset : ONSETS) {
+            for (String nucleus : NUCLEI) {
+                for (String coda : CODAS) {
+                    syllables.add(onset + nucleus + coda);
+                }
+            }
+        }
+
+        FuzzyTitleIndex index = new FuzzyTitleIndex();
+        String[] titles = new String[BOOKS + 1];
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (int id = 1; id <= BOOKS; id++) {
+            Book book = new Book();
+            book.setId((long) id);
+            book.setTitle(phrase(random, syllables, 2 + random.nextInt(5)));
+            book.setAuthor(phrase(random, syllables, 2 + random.nextInt(2)));
+            titles[id] = book.getTitle();
+            index.onBookChanged(BookChangedEvent.saved(book));
+        }
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+        long heapAfter = usedHeap();
+        Benchmark.report("build, " + BOOKS + " titles", buildMs + " ms, ~"
+                + Math.max(0, heapAfter - heapBefore) / BOOKS + " bytes/book (titles included)");
+
+        int[] found = { 0 };
+        long[] latencies = Benchmark.measure(QUERIES / 4, QUERIES, i -> {
+            int id = 1 + random.nextInt(BOOKS);
+            String query = withTypo(String.join(" ", TextNormalizer.tokenize(titles[id])), random);
+            if (index.search(query, 10).contains((long) id) && i >= QUERIES / 4) {
+                found[0]++;
+            }
+        });
+        Benchmark.report("typo query, " + BOOKS + " titles", Benchmark.summary(latencies)
+                + ", recall@10=" + found[0] * 100 / QUERIES + "%");
+
+        long[] common = Benchmark.measure(QUERIES / 4, QUERIES, i ->
+                index.search(syllables.get(random.nextInt(20)), 10));
+        Benchmark.report("common word query, " + BOOKS + " titles", Benchmark.summary(common));
+
+        // A catalog request runs at most one fuzzy query; keep it well under a page render
+        assertTrue(Benchmark.percentile(latencies, 0.99) < 50_000_000L, Benchmark.summary(latencies));
+        assertTrue(Benchmark.percentile(common, 0.99) < 50_000_000L, Benchmark.summary(common));
+    }
+
+    // Low syllable indexes are picked far more often, like common words in real titles
+    private static String phrase(Random random, List<String> syllables, int words) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            double skewed = Math.pow(random.nextDouble(), 3);
+            String syllable = syllables.get((int) (skewed * syllables.size()));
+            phrase.append(i == 0 ? Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1) : syllable);
+        }
+        return phrase.toString();
+    }
+
+    // Replace one letter of the longest word (at least 5 letters, so one edit is allowed)
+    private static String withTypo(String query, Random random) {
+        String[] words = query.split(" ");
+        int longest = 0;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].length() > words[longest].length()) {
+                longest = i;
+            }
+        }
+        String word = words[longest];
+        if (word.length() >= 5) {
+            int position = 1 + random.nextInt(word.length() - 1);
+            char replacement = word.charAt(position) == 'x' ? 'z' : 'x';
+            words[longest] = word.substring(0, position) + replacement + word.substring(position + 1);
+        }
+        return String.join(" ", words);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyTitleIndexTest {
+
+    private FuzzyTitleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FuzzyTitleIndex();
+        save(1L, "Tiếng Việt thực hành", "Nguyễn Văn An");
+        save(2L, "Lập trình Java", "Trần Bình");
+        save(3L, "Nhà giả kim", "Paulo Coelho");
+        save(4L, "Lịch sử Việt Nam", "Phạm Quang Minh");
+    }
+
+    @Test
+    void boundedLevenshteinIsExactWithinTheBound() {
+        assertEquals(0, FuzzyTitleIndex.boundedLevenshtein("viet", "viet", 2));
+        // A transposition costs two edits
+        assertEquals(2, FuzzyTitleIndex.boundedLevenshtein("viet", "veit", 2));
+        assertEquals(1, FuzzyTitleIndex.boundedLevenshtein("java", "jva", 2));
+        assertEquals(3, FuzzyTitleIndex.boundedLevenshtein("kitten", "sitting", 3));
+        assertEquals(3, FuzzyTitleIndex.boundedLevenshtein("", "abc", 5));
+    }
+
+    @Test
+    void boundedLevenshteinStopsAtMaxPlusOne() {
+        assertEquals(3, FuzzyTitleIndex.boundedLevenshtein("kitten", "sitting", 2));
+        assertEquals(1, FuzzyTitleIndex.boundedLevenshtein("kim", "kin", 0));
+        // Length difference alone exceeds the bound
+        assertEquals(3, FuzzyTitleIndex.boundedLevenshtein("a", "abcdef", 2));
+        assertEquals(2, FuzzyTitleIndex.boundedLevenshtein("abcdef", "uvwxyz", 1));
+    }
+
+    @Test
+    void findsTitlesWithoutDiacritics() {
+        assertEquals(List.of(1L), index.search("tieng viet thuc hanh", 10));
+        assertEquals(List.of(3L), index.search("nha gia kim", 10));
+    }
+
+    @Test
+    void toleratesTyposWithinTheAllowedDistance() {
+        assertEquals(List.of(2L), index.search("lap trnh java", 10));
+        assertEquals(List.of(4L), index.search("lich su viett nam", 10));
+        assertEquals(List.of(3L), index.search("coelo", 10));
+    }
+
+    @Test
+    void closerMatchesComeFirst() {
+        List<Long> results = index.search("viet", 10);
+        assertTrue(results.containsAll(List.of(1L, 4L)), results.toString());
+        // Same distance and overlap: newest book first
+        assertEquals(4L, results.get(0));
+    }
+
+    @Test
+    void candidatesNeedEnoughSharedTrigrams() {
+        // "javelin" shares only "$ja" and "jav" with "java": below the overlap threshold
+        assertEquals(List.of(), index.search("javelin", 10));
+        assertEquals(List.of(), index.search("zzzz qqqq", 10));
+    }
+
+    @Test
+    void shortWordsMustMatchExactly() {
+        assertEquals(List.of(), index.search("kin", 10));
+        assertEquals(List.of(3L), index.search("kim", 10));
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        save(2L, "Lập trình Kotlin", "Trần Bình");
+        assertEquals(List.of(), index.search("java", 10));
+        assertEquals(List.of(2L), index.search("kotlin", 10));
+
+        index.onBookChanged(BookChangedEvent.deleted(3L));
+        assertEquals(List.of(), index.search("nha gia kim", 10));
+    }
+
+    @Test
+    void respectsTheLimit() {
+        assertEquals(1, index.search("viet", 1).size());
+        assertEquals(List.of(), index.search("viet", 0));
+        assertEquals(List.of(), index.search("  ", 10));
+    }
+
+    private void save(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        index.onBookChanged(BookChangedEvent.saved(book));
+    }
+}
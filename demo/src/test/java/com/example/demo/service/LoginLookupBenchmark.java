@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import com.example.demo.model.SessionUser;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Login cost from 1k to 1M users through the real code path: UserService.authenticate
+ * (UserRepository.findByEmail on the unique email index) followed by SessionUser.from, on an
+ * in-memory H2 database with the schema Hibernate generates. Compared with the same call after
+ * dropping the email index and with the previous login, which loaded every user with
+ * UserRepository.findAll and compared emails in Java. Also reports the serialized size of the
+ * session principal.
+ */
+@EnabledIfSystemProperty(named = Benchmark.ENABLED_PROPERTY, matches = "true")
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:login-benchmark;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserService.class)
+// Every call commits on its own, like a login request, and the loaded users are not kept
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoginLookupBenchmark {
+
+    private static final int[] USER_COUNTS = { 1_000, 10_000, 100_000, 1_000_000 };
+    // The previous login is only measured while it still finishes in reasonable time
+    private static final int MAX_SCAN_USERS = 100_000;
+    private static final int LOOKUPS = 2_000;
+    private static final int UNINDEXED_LOOKUPS = 50;
+    private static final int SCAN_LOGINS = 5;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void loginLatencyStaysFlatAsUsersGrow() throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("insert into roles (name) values ('USER')");
+        long roleId = jdbc.queryForObject("select id from roles where name = 'USER'", Long.class);
+        String emailConstraint = jdbc.queryForObject("select tc.constraint_name"
+                + " from information_schema.table_constraints tc join information_schema.key_column_usage k"
+                + " on k.constraint_name = tc.constraint_name"
+                + " where tc.table_name = 'USERS' and tc.constraint_type = 'UNIQUE' and k.column_name = 'EMAIL'",
+                String.class);
+
+        Random random = new Random(42);
+        int populated = 0;
+        long smallest = 0;
+        long largest = 0;
+        for (int users : USER_COUNTS) {
+            populate(jdbc, populated + 1, users, roleId);
+            populated = users;
+            int count = users;
+
+            long[] indexed = Benchmark.measure(LOOKUPS / 4, LOOKUPS, i -> login(random, count));
+            Benchmark.report("authenticate, " + users + " users", Benchmark.summary(indexed));
+
+            jdbc.execute("alter table users drop constraint " + emailConstraint);
+            long[] unindexed = Benchmark.measure(2, UNINDEXED_LOOKUPS, i -> login(random, count));
+            jdbc.execute("alter table users add constraint " + emailConstraint + " unique (email)");
+            Benchmark.report("authenticate without index, " + users + " users", Benchmark.summary(unindexed));
+
+            if (users <= MAX_SCAN_USERS) {
+                long[] scan = Benchmark.measure(1, SCAN_LOGINS, i -> {
+                    String email = "user" + (1 + random.nextInt(count)) + "@example.com";
+                    User user = userRepository.findAll().stream()
+                            .filter(u -> email.equals(u.getEmail()))
+                            .findFirst()
+                            .orElseThrow();
+                    SessionUser.from(user);
+                });
+                Benchmark.report("findAll scan (previous), " + users + " users", Benchmark.summary(scan));
+            }
+
+            if (users == USER_COUNTS[0]) {
+                smallest = Benchmark.percentile(indexed, 0.5);
+            }
+            largest = Benchmark.percentile(indexed, 0.5);
+        }
+
+        SessionUser principal = SessionUser.from(userService.authenticate("user1@example.com", "secret"));
+        assertEquals(java.util.Set.of("USER"), principal.getRoles());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(principal);
+        }
+        Benchmark.report("session principal", bytes.size() + " bytes serialized");
+
+        // Index seek: 1000x more users must not cost anywhere near 1000x more per login
+        assertTrue(largest < smallest * 10, "p50 " + smallest + " ns at 1k users vs " + largest + " ns at 1M");
+    }
+
+    // A login as the controller does it: mixed-case input, credentials check, session principal
+    private void login(Random random, int users) {
+        String email = " User" + (1 + random.nextInt(users)) + "@Example.com ";
+        User user = userService.authenticate(email, "secret");
+        assertNotNull(user, email);
+        SessionUser.from(user);
+    }
+
+    private static void populate(JdbcTemplate jdbc, int from, int to, long roleId) {
+        jdbc.update("insert into users (username, password, email, full_name, enabled)"
+                + " select 'user' || x, 'secret', 'user' || x || '@example.com', 'User ' || x, true"
+                + " from system_range(?, ?)", from, to);
+        jdbc.update("insert into user_roles (user_id, role_id) select u.id, ? from users u"
+                + " where not exists (select 1 from user_roles r where r.user_id = u.id)", roleId);
+    }
+}
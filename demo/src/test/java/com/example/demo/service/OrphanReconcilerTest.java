@@ -0,0 +1,161 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BookFileRepository;
+import com.example.demo.repository.StoredBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrphanReconcilerTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final String DRIVE_ID = "1AbCdEfGhIjKlMnOpQrStUvWxYz012345";
+
+    @TempDir
+    Path uploads;
+
+    @Mock
+    private BookFileRepository bookFileRepository;
+
+    @Mock
+    private StoredBlobRepository storedBlobRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private GoogleDriveService googleDriveService;
+
+    @InjectMocks
+    private OrphanReconciler reconciler;
+
+    private long cutoff;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reconciler, "batchSize", 2);
+        ReflectionTestUtils.setField(reconciler, "batchPauseMs", 0L);
+        when(fileStorageService.getFileStorageLocation()).thenReturn(uploads);
+        cutoff = System.currentTimeMillis() - 24 * HOUR;
+    }
+
+    @Test
+    void scanReportsOldUnreferencedFilesOnly() throws Exception {
+        write("referenced.pdf", 48);
+        write("ab/cd/orphan.pdf", 48);
+        write("recent-orphan.pdf", 1);
+        SortedLongSet references = references("referenced.pdf");
+
+        List<OrphanReconciler.Orphan> orphans = new ArrayList<>();
+        OrphanReport report = new OrphanReport(true);
+        reconciler.scanUploads(references, cutoff, orphans, report);
+
+        assertEquals(Set.of("ab/cd/orphan.pdf"), keys(orphans));
+        assertEquals(3, report.getLocalFilesScanned());
+        assertEquals(1, report.getLocalOrphans());
+        assertEquals(List.of("uploads/ab/cd/orphan.pdf"), report.getSamples());
+    }
+
+    @Test
+    void scanKeepsDotFilesAndDotDirectoriesButDropsStaleTempFiles() throws Exception {
+        write(".upload-index", 48);
+        write(".cache/drive/1abc", 48);
+        write(".incoming-123.tmp", 48);
+        write(".incoming-456.tmp", 1);
+        write("ab/.incoming-789.tmp", 48);
+
+        List<OrphanReconciler.Orphan> orphans = new ArrayList<>();
+        OrphanReport report = new OrphanReport(true);
+        reconciler.scanUploads(references(), cutoff, orphans, report);
+
+        assertEquals(Set.of(".incoming-123.tmp", "ab/.incoming-789.tmp"), keys(orphans));
+        assertEquals(2, report.getPartialFiles());
+        // Dot files are never counted as scanned book files
+        assertEquals(0, report.getLocalFilesScanned());
+    }
+
+    @Test
+    void deleteRechecksTheDatabaseBeforeEachFile() throws Exception {
+        when(bookFileRepository.existsByFilePath(anyString())).thenReturn(false);
+        when(bookFileRepository.existsByFilePath("saved-since-scan.pdf")).thenReturn(true);
+        when(bookFileRepository.existsByFilePath(DRIVE_ID)).thenReturn(true);
+        when(storedBlobRepository.existsByLocalName("blob-since-scan.pdf")).thenReturn(true);
+        when(fileStorageService.deleteFile("orphan.pdf")).thenReturn(true);
+
+        List<OrphanReconciler.Orphan> orphans = List.of(
+                new OrphanReconciler.Orphan("saved-since-scan.pdf", false),
+                new OrphanReconciler.Orphan("blob-since-scan.pdf", false),
+                new OrphanReconciler.Orphan("orphan.pdf", false),
+                new OrphanReconciler.Orphan(DRIVE_ID, true));
+        OrphanReport report = new OrphanReport(false);
+        reconciler.delete(orphans, report);
+
+        verify(fileStorageService, never()).deleteFile("saved-since-scan.pdf");
+        verify(fileStorageService, never()).deleteFile("blob-since-scan.pdf");
+        verify(fileStorageService).deleteFile("orphan.pdf");
+        verify(googleDriveService, never()).trashFile(anyString());
+        verify(storedBlobRepository, never()).clearDriveFileId(anyString());
+        assertEquals(1, report.getDeleted());
+        assertEquals(0, report.getFailed());
+    }
+
+    @Test
+    void deleteTrashesDriveOrphansAndCountsFailures() throws Exception {
+        when(bookFileRepository.existsByFilePath(anyString())).thenReturn(false);
+        when(fileStorageService.deleteFile("locked.pdf")).thenThrow(new IllegalStateException("locked"));
+
+        List<OrphanReconciler.Orphan> orphans = List.of(
+                new OrphanReconciler.Orphan(DRIVE_ID, true),
+                new OrphanReconciler.Orphan("locked.pdf", false));
+        OrphanReport report = new OrphanReport(false);
+        reconciler.delete(orphans, report);
+
+        verify(googleDriveService).trashFile(DRIVE_ID);
+        verify(storedBlobRepository).clearDriveFileId(DRIVE_ID);
+        assertEquals(1, report.getDeleted());
+        assertEquals(1, report.getFailed());
+    }
+
+    private void write(String name, long ageHours) throws Exception {
+        Path file = uploads.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, name);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - ageHours * HOUR));
+    }
+
+    private static SortedLongSet references(String... names) {
+        SortedLongSet set = new SortedLongSet();
+        for (String name : names) {
+            set.add(SortedLongSet.hash(name));
+        }
+        set.seal();
+        return set;
+    }
+
+    private static Set<String> keys(List<OrphanReconciler.Orphan> orphans) {
+        return orphans.stream().map(orphan -> orphan.key).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedLongSetTest {
+
+    @Test
+    void sealSortsAndDropsDuplicates() {
+        SortedLongSet set = new SortedLongSet(4);
+        for (long value : new long[] { 42, -7, 42, Long.MAX_VALUE, 0, -7, Long.MIN_VALUE, 42 }) {
+            set.add(value);
+        }
+        assertEquals(8, set.size());
+        set.seal();
+
+        assertEquals(5, set.size());
+        for (long value : new long[] { 42, -7, Long.MAX_VALUE, 0, Long.MIN_VALUE }) {
+            assertTrue(set.contains(value), Long.toString(value));
+        }
+        assertFalse(set.contains(41));
+        assertFalse(set.contains(1));
+    }
+
+    @Test
+    void growsPastTheExpectedSize() {
+        SortedLongSet set = new SortedLongSet(1);
+        for (long value = 10_000; value > 0; value--) {
+            set.add(value * 3);
+        }
+        set.seal();
+
+        assertEquals(10_000, set.size());
+        assertTrue(set.contains(3));
+        assertTrue(set.contains(30_000));
+        assertFalse(set.contains(30_001));
+    }
+
+    @Test
+    void emptySetContainsNothing() {
+        SortedLongSet set = new SortedLongSet();
+        set.seal();
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    void addAndContainsRequireTheRightState() {
+        SortedLongSet set = new SortedLongSet();
+        set.add(1);
+        assertThrows(IllegalStateException.class, () -> set.contains(1));
+
+        set.seal();
+        // Sealing twice keeps the set
+        set.seal();
+        assertTrue(set.contains(1));
+        assertThrows(IllegalStateException.class, () -> set.add(2));
+    }
+
+    @Test
+    void hashIsStableAndSpreadsSimilarPaths() {
+        assertEquals(SortedLongSet.hash("ab/cd/book.pdf"), SortedLongSet.hash("ab/cd/book.pdf"));
+        assertNotEquals(SortedLongSet.hash("ab/cd/book.pdf"), SortedLongSet.hash("ab/cd/book.pdg"));
+        assertNotEquals(SortedLongSet.hash("ab"), SortedLongSet.hash("ba"));
+        // FNV-1a offset basis
+        assertEquals(0xcbf29ce484222325L, SortedLongSet.hash(""));
+    }
+}
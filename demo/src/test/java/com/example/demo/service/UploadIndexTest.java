@@ -0,0 +1,101 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadIndexTest {
+
+    @TempDir
+    Path uploads;
+
+    private Path indexFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        indexFile = uploads.resolve(".upload-index");
+        Files.writeString(uploads.resolve("a.pdf"), "aaaa");
+        Files.createDirectories(uploads.resolve("books"));
+        Files.writeString(uploads.resolve("books/b.epub"), "bb");
+        Files.createDirectories(uploads.resolve(".cache"));
+        Files.writeString(uploads.resolve(".cache/c.bin"), "cccccc");
+        Files.writeString(uploads.resolve(".incoming-1.tmp"), "d");
+    }
+
+    @Test
+    void rebuildSkipsDotFilesAndDotDirectories() throws Exception {
+        UploadIndex index = newIndex();
+        index.rebuild(uploads);
+
+        assertTrue(index.isLoaded());
+        assertEquals(2, index.getFileCount());
+        assertEquals(6, index.getTotalBytes());
+        assertEquals(2, index.get("books/b.epub").getSize());
+        assertNull(index.get(".cache/c.bin"));
+    }
+
+    @Test
+    void indexSavedAtShutdownIsTrusted() throws Exception {
+        UploadIndex index = newIndex();
+        index.rebuild(uploads);
+        index.put("new.pdf", 10, 1L, null);
+        index.saveOnShutdown();
+
+        UploadIndex restarted = newIndex();
+        restarted.init();
+        assertTrue(restarted.isLoaded());
+        assertEquals(3, restarted.getFileCount());
+        assertEquals(16, restarted.getTotalBytes());
+    }
+
+    @Test
+    void indexLeftByACrashIsRebuilt() throws Exception {
+        UploadIndex index = newIndex();
+        index.rebuild(uploads);
+        index.put("new.pdf", 10, 1L, null);
+        // Periodic save only, then the process dies
+        index.save();
+
+        UploadIndex restarted = newIndex();
+        restarted.init();
+        assertFalse(restarted.isLoaded());
+        assertEquals(0, restarted.getFileCount());
+    }
+
+    @Test
+    void loadingMarksTheFileUncleanUntilTheNextShutdown() throws Exception {
+        UploadIndex index = newIndex();
+        index.rebuild(uploads);
+        index.saveOnShutdown();
+
+        newIndex().init();
+        // Crash right after startup: the clean mark must not survive
+        UploadIndex afterCrash = newIndex();
+        afterCrash.init();
+        assertFalse(afterCrash.isLoaded());
+    }
+
+    @Test
+    void nothingIsWrittenBeforeTheIndexIsLoaded() {
+        UploadIndex index = newIndex();
+        index.put("a.pdf", 4, 1L, null);
+        index.saveOnShutdown();
+
+        assertFalse(Files.exists(indexFile));
+    }
+
+    private UploadIndex newIndex() {
+        UploadIndex index = new UploadIndex();
+        ReflectionTestUtils.setField(index, "indexFile", indexFile.toString());
+        return index;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ViewCountServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ViewCountService viewCountService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesOneBatchAndForgetsFlushedBooks() {
+        viewCountService.recordView(1L);
+        viewCountService.recordView(1L);
+        viewCountService.recordView(2L);
+        viewCountService.flush();
+
+        ArgumentCaptor<java.util.List<Object[]>> batch = ArgumentCaptor.forClass(java.util.List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(Map.of(1L, 2L, 2L, 1L), deltas(batch.getValue()));
+        assertEquals(0, viewCountService.getPendingViews(1L));
+
+        // Nothing viewed since: no statement at all
+        viewCountService.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void failedFlushRequeuesEveryDeltaOnce() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+        viewCountService.recordView(1L);
+        viewCountService.recordView(1L);
+        viewCountService.flush();
+
+        // Views recorded while the flush failed add up with the requeued ones
+        viewCountService.recordView(1L);
+        assertEquals(3, viewCountService.getPendingViews(1L));
+        verify(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void flushWithoutViewsDoesNotTouchTheDatabase() {
+        viewCountService.flush();
+        viewCountService.recordView(null);
+        viewCountService.flush();
+
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
+    private static Map<Long, Long> deltas(java.util.List<Object[]> batch) {
+        return batch.stream().collect(Collectors.toMap(row -> (Long) row[1], row -> (Long) row[0]));
+    }
+}